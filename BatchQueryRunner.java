@@ -0,0 +1,263 @@
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *	BatchQueryRunner - Runs a script of queries against one loaded dataset, for
+ *	scripting Population without the interactive menu. Results are written by a
+ *	ResultWriter, and each query's result is flushed as soon as it is done.
+ *
+ *	The script is read as UTF-8, like the data file. One query per line; blank lines
+ *	and lines starting with # are skipped. Words are case-insensitive, and [limit N]
+ *	defaults to the --limit option (fifty); counts and limits must not be negative:
+ *		top N pop [asc|desc]        most (desc, the default) or least populous cities
+ *		top N name [asc|desc]       first (asc, the default) or last cities by name
+ *		sort ALGORITHM pop|name [asc|desc] [limit N]
+ *		                            sorts every city afresh with a SortAlgorithm (adaptive,
+ *		                            insertion, selection, merge, natural, parallel or radix)
+ *		                            instead of reading the index, for comparing them
+ *		state NAME [limit N]        most populous cities in a state
+ *		city NAME [limit N]         cities with a name, most populous first (all by default)
+ *		prefix TEXT [limit N]       cities whose name starts with TEXT, most populous first
+ *		rollup state|designation|all [top N]
+ *		                            population per group, with the share held by its top N
+ *		                            cities (ten by default)
+ *		range MIN..MAX [limit N]    cities with MIN to MAX people, least populous first;
+ *		                            either end may be left out, as in 100000..
+ *		histogram MIN..MAX [N] [quantile]
+ *		                            N buckets (ten by default) of the range, of equal width,
+ *		                            or with quantile of equal city counts (the percentiles)
+ *		find FILTER=VALUE ...       cities passing every filter given: state (a comma list),
+ *		                            type, pop=MIN..MAX, name, prefix, regex, order=pop|name
+ *		                            with an optional -asc or -desc, and limit (see
+ *		                            CityQuery.parse), or a trailing limit N as above; a value
+ *		                            runs up to the next FILTER=, so it may hold spaces, as in
+ *		                            state=New York
+ *
+ *		stats                       the Metrics so far, in the Prometheus text format
+ *
+ *	A query that can't be parsed is reported on standard error and skipped.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class BatchQueryRunner
+{
+    private final CityQueries queries;
+    private final int defaultLimit;   // rows per query when the query gives no limit
+    private final ResultWriter out;
+
+    private static final List<String> FIND_FILTERS = Arrays.asList("state", "type", "pop", "name", "prefix",
+                                                                    "regex", "order", "limit");
+
+    /**
+     *  @param queries      the queries to run against
+     *  @param defaultLimit rows per query when the query gives no limit
+     *  @param out          writes the results
+     */
+    public BatchQueryRunner(CityQueries queries, int defaultLimit, ResultWriter out)
+    {
+        this.queries = queries;
+        this.defaultLimit = defaultLimit;
+        this.out = out;
+    }
+
+    /**
+     *  Runs every query in a script.
+     *
+     *  @param script   name of the query script, or - for standard input
+     *  @return         the number of queries run
+     */
+    public int run(String script)
+    {
+        int count = 0;
+        try(Reader source = new InputStreamReader(script.equals("-") ? System.in : new FileInputStream(script),
+                                                    StandardCharsets.UTF_8))
+        {
+            BufferedReader in = new BufferedReader(source);
+            String line = in.readLine();
+            while(line != null)
+            {
+                line = line.trim();
+                if(!line.isEmpty() && !line.startsWith("#") && runQuery(line))
+                    count++;
+                line = in.readLine();
+            }
+        }
+        catch(IOException e)
+        {
+            System.err.println("ERROR: Cannot read query script "+script);
+        }
+        return count;
+    }
+
+    /**
+     *  Parses and runs one query, and writes its result.
+     *
+     *  @param query    the query line
+     *  @return         true if the query ran, false if it could not be parsed
+     */
+    public boolean runQuery(String query)
+    {
+        String[] words = query.split("\\s+");
+        String op = words[0].toLowerCase();
+        int end = words.length;
+        int limit = -1;
+
+        try
+        {
+            if(end >= 3 && words[end-2].equalsIgnoreCase("limit"))
+            {
+                limit = parseCount(words[end-1]);
+                end -= 2;
+            }
+            String argument = String.join(" ", Arrays.copyOfRange(words, 1, end));
+
+            if(op.equals("rollup") && words.length >= 2)
+            {
+                int top = 10;
+                if(words.length == 4 && words[2].equalsIgnoreCase("top"))
+                    top = parseCount(words[3]);
+                else if(words.length != 2)
+                    throw new IllegalArgumentException("rollup takes a grouping and an optional top N");
+                out.writeRollup(queries.rollup(GroupBy.parse(words[1])), top, query);
+                if(out.getFormat() == OutputFormat.TABLE)
+                    out.write("\n");
+                return true;
+            }
+
+            if(op.equals("stats") && words.length == 1)
+            {
+                out.write(Metrics.prometheus(queries.getCache()));
+                return true;
+            }
+
+            if(op.equals("histogram") && words.length >= 2 && words.length <= 4)
+            {
+                int[] range = CityQuery.parseRange(words[1]);
+                boolean quantile = words[words.length-1].equalsIgnoreCase("quantile");
+                int buckets = words.length - (quantile ? 1 : 0) > 2 ? Integer.parseInt(words[2]) : 10;
+                if(buckets < 1 || words.length == 4 && !quantile)
+                    throw new IllegalArgumentException("histogram takes a range, a bucket count and quantile");
+                PopulationRangeIndex ranges = queries.getRanges();
+                out.writeHistogram(quantile ? ranges.quantiles(range[0], range[1], buckets)
+                                            : ranges.histogram(range[0], range[1], buckets), query);
+                if(out.getFormat() == OutputFormat.TABLE)
+                    out.write("\n");
+                return true;
+            }
+
+            int[] rows;
+            if(op.equals("range") && end == 2)
+            {
+                int[] range = CityQuery.parseRange(words[1]);
+                rows = queries.getRanges().between(range[0], range[1], false, limit < 0 ? defaultLimit : limit);
+            }
+            else if(op.equals("find") && words.length >= 2)
+                rows = queries.select(parseFind(words, end, limit));
+            else if(op.equals("top") && end >= 3)
+                rows = queries.top(parseOrder(words, end), parseCount(words[1]));
+            else if(op.equals("sort") && end >= 3)
+                rows = queries.sort(parseOrder(words, end), SortAlgorithm.parse(words[1]),
+                                    limit < 0 ? defaultLimit : limit);
+            else if(op.equals("state") && end >= 2)
+                rows = queries.mostPopulousInState(argument, limit < 0 ? defaultLimit : limit);
+            else if(op.equals("city") && end >= 2)
+                rows = queries.matchingName(argument, limit < 0 ? Integer.MAX_VALUE : limit);
+            else if(op.equals("prefix") && end >= 2)
+                rows = queries.nameStartingWith(argument, limit < 0 ? defaultLimit : limit);
+            else
+                throw new IllegalArgumentException("unknown query");
+
+            out.writeResult(queries.getTable(), rows, query);
+            if(out.getFormat() == OutputFormat.TABLE)
+                out.write("\n");
+            return true;
+        }
+        catch(IllegalArgumentException e)
+        {
+            System.err.println("ERROR: "+query+": "+e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     *  Reads a number of rows, such as a limit.
+     *
+     *  @param word     the number
+     *  @return         its value
+     *  @throws IllegalArgumentException if it is not a number or is negative
+     */
+    private static int parseCount(String word)
+    {
+        int count = Integer.parseInt(word);
+        if(count < 0)
+            throw new IllegalArgumentException("a count must not be negative: "+word);
+        return count;
+    }
+
+    /**
+     *  Reads the filters of a find query. A word that does not start a known filter
+     *  is part of the value before it. The limit may be given as limit=N or, like the
+     *  other queries, as a trailing limit N, but not both.
+     *
+     *  @param words    the words of the query
+     *  @param end      the number of words before any trailing limit N
+     *  @param limit    the trailing limit N, or -1 if there is none
+     *  @return         the query, limited to the default limit unless it sets one
+     */
+    private CityQuery parseFind(String[] words, int end, int limit)
+    {
+        Map<String, String> params = new LinkedHashMap<String, String>();
+        params.put("limit", String.valueOf(limit < 0 ? defaultLimit : limit));
+        String key = null;
+        for(int i=1; i<end; i++)
+        {
+            int equals = words[i].indexOf('=');
+            String filter = equals > 0 ? words[i].substring(0, equals).toLowerCase() : null;
+            if(filter != null && FIND_FILTERS.contains(filter))
+            {
+                if(filter.equals("limit") && limit >= 0)
+                    throw new IllegalArgumentException("find takes limit=N or limit N, not both");
+                key = filter;
+                params.put(key, words[i].substring(equals + 1));
+            }
+            else if(key != null)
+                params.put(key, params.get(key)+" "+words[i]);
+            else
+                throw new IllegalArgumentException("find needs FILTER=VALUE, not "+words[i]);
+        }
+        return CityQuery.parse(params);
+    }
+
+    /**
+     *  Reads the order of a top or sort query: "pop" or "name", then an optional asc or desc.
+     *
+     *  @param words    the words of the query
+     *  @param end      the number of words before any limit
+     *  @return         the order
+     */
+    private SortOrder parseOrder(String[] words, int end)
+    {
+        String key = words[2].toLowerCase();
+        String direction = end > 3 ? words[3].toLowerCase() : "";
+        boolean byName = key.equals("name");
+        if(!byName && !key.startsWith("pop"))
+            throw new IllegalArgumentException(words[0]+" needs pop or name");
+
+        boolean descending = direction.isEmpty() ? !byName : direction.equals("desc");
+        if(!direction.isEmpty() && !direction.equals("asc") && !direction.equals("desc"))
+            throw new IllegalArgumentException("order must be asc or desc");
+
+        if(byName)
+            return descending ? SortOrder.NAME_DESCENDING : SortOrder.NAME_ASCENDING;
+        return descending ? SortOrder.POPULATION_DESCENDING : SortOrder.POPULATION_ASCENDING;
+    }
+}
@@ -2,31 +2,37 @@
  *	City data - the city name, state name, location designation,
  *				and population est. 2017
  *
+ *	A City is immutable, so it can be shared between threads without copying.
+ *
  *	@author	Sudhanva Deshpande
  *	@since	January 9, 2023
  */
-public class City implements Comparable<City> {
+public final class City implements Comparable<City> {
 	
 	// fields
-	private String name;
-	private String state;
-	private String designation;
-	private int population;
+	private final String name;
+	private final String state;
+	private final String designation;
+	private final int population;
 	
-	// constructor
-	public City()
+	/**	@param name			the city name
+	 *	@param state		the state name
+	 *	@param designation	the location designation, like "city" or "CDP"
+	 *	@param population	the population est. 2017
+	 */
+	public City(String name, String state, String designation, int population)
 	{
-		name = "";
-		state = "";
-		designation = "";
-		population = 0;
+		this.name = name;
+		this.state = state;
+		this.designation = designation;
+		this.population = population;
 	}
 		
 	
 	/**	Compare two cities populations
 	 *	@param other		the other City to compare
 	 *	@return				the following value:
-	 *		If populations are different, then returns (this.population - other.population)
+	 *		If populations are different, then returns Integer.compare(this.population, other.population)
 	 *		else if states are different, then returns (this.state - other.state)
 	 *		else returns (this.name - other.name)
 	 */
@@ -34,7 +40,7 @@ public class City implements Comparable<City> {
 	public int compareTo(City other) 
 	{
 		if(this.getPopulation() != other.getPopulation())
-			return this.getPopulation() - other.getPopulation();
+			return Integer.compare(this.getPopulation(), other.getPopulation());
 		else if(!this.getStateName().equals(other.getStateName()))
 			return this.getStateName().compareTo(other.getStateName());
 		else
@@ -42,26 +48,30 @@ public class City implements Comparable<City> {
 			
 	}
 	 
-	/**	Equal city name and state name
-	 *	@param other		the other City to compare
-	 *	@return				true if city name and state name equal; false otherwise
+	/**	Equal city name, state name, designation and population
+	 *	@param other		the object to compare
+	 *	@return				true if other is a City with the same four fields; false otherwise
 	 */
-	
-	public boolean equals(City other)
+	@Override
+	public boolean equals(Object other)
 	{
-		if(this.getCityName().equals(other.getCityName()))	
-					
+		if(this == other)
 			return true;
-		else
+		if(!(other instanceof City))
 			return false;
+		City city = (City)other;
+		return population == city.population && name.equals(city.name)
+				&& state.equals(city.state) && designation.equals(city.designation);
 	}
 	
-	/**	Accessor methods */
-	public void setCityName(String city) { name = city; }	
-	public void setStateName(String stateName) { state = stateName; }
-	public void setCityType(String type) { designation = type; }
-	public void setPopulation(int pop) { population = pop; }
+	/**	@return	a hash code built from the same fields as equals */
+	@Override
+	public int hashCode()
+	{
+		return ((name.hashCode() * 31 + state.hashCode()) * 31 + designation.hashCode()) * 31 + population;
+	}
 	
+	/**	Accessor methods */
 	public String getCityName() { return name; }
 	public String getStateName() { return state; }
 	public String getCityType() { return designation; }
@@ -0,0 +1,178 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ *	CityAggregator - Group-by aggregation over the population column of a CityTable,
+ *	for rollups like total, average and median population per state or counts per
+ *	designation.
+ *
+ *	Groups are dictionary ids (see GroupBy), so the count, sum, min and max of every
+ *	group are kept in primitive arrays indexed by group and filled in one pass over
+ *	the rows. Inputs longer than PARALLEL_CUTOFF rows are split in halves on a
+ *	ForkJoinPool, each half fills its own arrays, and the halves are combined.
+ *
+ *	Percentiles and top-N shares need each group's populations in order. When they
+ *	are asked for, a second pass scatters the populations into one array grouped by
+ *	the counts from the first pass, and each group's slice is sorted. If the rows
+ *	are given in population order, such as the population ascending index, the
+ *	slices come out sorted already and the sort is skipped.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class CityAggregator
+{
+    public static final int PARALLEL_CUTOFF = 1 << 16;   // inputs this short are aggregated on one thread
+
+    private final ForkJoinPool pool;   // pool the aggregation tasks run on
+
+    public CityAggregator()
+    {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /** @param pool     the pool to run the aggregation tasks on */
+    public CityAggregator(ForkJoinPool pool)
+    {
+        this.pool = pool;
+    }
+
+    /**
+     *  Aggregates the population of rows by group.
+     *
+     *  @param table        the table the rows belong to
+     *  @param rows         the row ids to aggregate, or null for every row; percentiles
+     *                      are quicker if they are in population ascending order
+     *  @param by           what to group by
+     *  @param keepValues   true to keep each group's populations, for percentiles and
+     *                      top-N shares
+     *  @return             one GroupStats per group that has rows, in group id order
+     */
+    public GroupStats[] aggregate(CityTable table, int[] rows, GroupBy by, boolean keepValues)
+    {
+        int length = rows == null ? table.size() : rows.length;
+        AggregateTask task = new AggregateTask(table, rows, by, 0, length);
+        Accumulator total = length <= PARALLEL_CUTOFF ? task.compute() : pool.invoke(task);
+
+        int[] values = null;
+        int[] start = new int[total.count.length + 1];
+        for(int group=0; group<total.count.length; group++)
+            start[group+1] = start[group] + total.count[group];
+        if(keepValues)
+        {
+            values = new int[length];
+            int[] filled = Arrays.copyOf(start, total.count.length);
+            boolean ordered = true;
+            int last = Integer.MIN_VALUE;
+            for(int i=0; i<length; i++)
+            {
+                int row = rows == null ? i : rows[i];
+                int pop = table.getPopulation(row);
+                values[filled[by.groupOf(table, row)]++] = pop;
+                ordered &= pop >= last;
+                last = pop;
+            }
+            for(int group=0; group<total.count.length && !ordered; group++)
+                Arrays.sort(values, start[group], start[group+1]);
+        }
+
+        int numGroups = 0;
+        for(int count : total.count)
+        {
+            if(count > 0)
+                numGroups++;
+        }
+        GroupStats[] stats = new GroupStats[numGroups];
+        int next = 0;
+        for(int group=0; group<total.count.length; group++)
+        {
+            if(total.count[group] > 0)
+                stats[next++] = new GroupStats(by.groupName(table, group), total.count[group], total.sum[group],
+                                                total.min[group], total.max[group], values, start[group],
+                                                start[group+1]);
+        }
+        return stats;
+    }
+
+    /** Count, sum, min and max of each group, for one range of the input */
+    private static class Accumulator
+    {
+        final int[] count;
+        final long[] sum;
+        final int[] min;
+        final int[] max;
+
+        Accumulator(int groups)
+        {
+            count = new int[groups];
+            sum = new long[groups];
+            min = new int[groups];
+            max = new int[groups];
+            Arrays.fill(min, Integer.MAX_VALUE);
+            Arrays.fill(max, Integer.MIN_VALUE);
+        }
+
+        /** Adds another range's accumulators into this one */
+        void combine(Accumulator other)
+        {
+            for(int group=0; group<count.length; group++)
+            {
+                count[group] += other.count[group];
+                sum[group] += other.sum[group];
+                min[group] = Math.min(min[group], other.min[group]);
+                max[group] = Math.max(max[group], other.max[group]);
+            }
+        }
+    }
+
+    /** Aggregates the input positions [from, to), splitting long ranges in half */
+    private static class AggregateTask extends RecursiveTask<Accumulator>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final CityTable table;
+        private final int[] rows;     // row ids, or null for positions that are row ids
+        private final GroupBy by;
+        private final int from;
+        private final int to;
+
+        AggregateTask(CityTable table, int[] rows, GroupBy by, int from, int to)
+        {
+            this.table = table;
+            this.rows = rows;
+            this.by = by;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Accumulator compute()
+        {
+            if(to - from > PARALLEL_CUTOFF)
+            {
+                int middle = (from+to) >>> 1;
+                AggregateTask right = new AggregateTask(table, rows, by, middle, to);
+                right.fork();
+                Accumulator left = new AggregateTask(table, rows, by, from, middle).compute();
+                left.combine(right.join());
+                return left;
+            }
+
+            Accumulator acc = new Accumulator(by.numGroups(table));
+            for(int i=from; i<to; i++)
+            {
+                int row = rows == null ? i : rows[i];
+                int group = by.groupOf(table, row);
+                int pop = table.getPopulation(row);
+                acc.count[group]++;
+                acc.sum[group] += pop;
+                if(pop < acc.min[group])
+                    acc.min[group] = pop;
+                if(pop > acc.max[group])
+                    acc.max[group] = pop;
+            }
+            return acc;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ *	CityDataset - One loaded, read-only version of the city database: the frozen
+ *	CityTable with its SortIndexes, CityLookup and CityQueries.
+ *
+ *	Nothing in a dataset changes once it is built, so a new version of the data is
+ *	published by building a new CityDataset and swapping it into an
+ *	AtomicReference. A reader fetches the reference once and uses that dataset for
+ *	its whole query, so it always sees one consistent version even while another
+ *	thread swaps in the next.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public final class CityDataset
+{
+    private final CityTable table;
+    private final SortIndexes indexes;
+    private final CityLookup lookup;
+    private final CityQueries queries;
+
+    /**
+     *  Freezes a loaded table and builds its lookups and queries.
+     *
+     *  @param table    the loaded cities; frozen by this constructor
+     *  @param indexes  the table's sort-order indexes
+     *  @param cache    caches query results; may be shared with earlier datasets
+     */
+    public CityDataset(CityTable table, SortIndexes indexes, QueryCache cache)
+    {
+        this(table, indexes, new CityLookup(table), cache);
+    }
+
+    /**
+     *  Freezes a table and wraps it with its already built indexes and lookups.
+     *
+     *  @param table    the cities; frozen by this constructor
+     *  @param indexes  the table's sort-order indexes
+     *  @param lookup   the table's state and city name lookups
+     *  @param cache    caches query results; may be shared with earlier datasets
+     */
+    public CityDataset(CityTable table, SortIndexes indexes, CityLookup lookup, QueryCache cache)
+    {
+        table.freeze();
+        this.table = table;
+        this.indexes = indexes;
+        this.lookup = lookup;
+        queries = new CityQueries(table, indexes, lookup, cache);
+    }
+
+    /**
+     *  Loads a data file: reads its binary snapshot if there is a current one, and
+     *  otherwise parses the text file with CityLoader, builds the sort-order indexes
+     *  and saves a new snapshot. Off the heap, rows read from a snapshot stay in the
+     *  mapped file, and parsed rows are moved into direct memory before the indexes
+     *  are built.
+     *
+     *  @param dataFile     name of the text data file
+     *  @param lazy         true to build each sort-order index on first use
+     *  @param algorithm    the sort to build the indexes with
+     *  @param useSnapshot  true to read and write the binary snapshot
+     *  @param offHeap      true to hold the rows outside the heap
+     *  @param cache        caches query results; may be shared with earlier datasets
+     *  @return             the loaded dataset
+     */
+    public static CityDataset load(String dataFile, boolean lazy, SortAlgorithm algorithm, boolean useSnapshot,
+                                    boolean offHeap, QueryCache cache)
+    {
+        CitySnapshot snapshot = useSnapshot ? CitySnapshot.read(dataFile, lazy, algorithm, offHeap) : null;
+        if(snapshot != null)
+            return new CityDataset(snapshot.getTable(), snapshot.getIndexes(), cache);
+
+        CityTable table = new CityTable();
+        CityLoader.load(dataFile, table);
+        if(offHeap)
+        {
+            table.freeze();
+            table = table.offHeap();
+        }
+        SortIndexes indexes = new SortIndexes(table, lazy, algorithm);
+        if(useSnapshot)
+            CitySnapshot.write(dataFile, table, indexes);
+        return new CityDataset(table, indexes, cache);
+    }
+
+    /**	Accessor methods */
+    public CityTable getTable() { return table; }
+    public SortIndexes getIndexes() { return indexes; }
+    public CityLookup getLookup() { return lookup; }
+    public CityQueries getQueries() { return queries; }
+    public int size() { return table.size(); }
+}
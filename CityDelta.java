@@ -0,0 +1,218 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+/**
+ *	CityDelta - A set of corrections to the city database, read from a delta file and
+ *	applied to a loaded CityDataset without reloading the whole data file.
+ *
+ *	Each line of a delta file is tab-separated, and blank lines and lines starting
+ *	with # are skipped:
+ *		upsert TAB state TAB city TAB designation TAB population
+ *		delete TAB state TAB city [TAB designation]
+ *	Cities are keyed by state and city name, ignoring case. An upsert changes the
+ *	population and designation of the city with that key, or adds it if there is none;
+ *	if several cities share the key, the designation picks which one. A delete removes
+ *	every city with the key, or only the one with the designation if it is given.
+ *	Changes are applied in file order, so a later line sees the earlier ones.
+ *
+ *	Applying a delta builds a new dataset, since a published one never changes: the
+ *	table's columns are copied and changed, and the sort indexes and lookups are
+ *	patched with SortIndexes.patched and CityLookup.patched instead of being rebuilt.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class CityDelta
+{
+    private final List<Change> changes;
+    private int updated;   // rows changed by the last apply
+    private int added;     // rows added by the last apply
+    private int removed;   // rows removed by the last apply
+
+    /** One line of a delta file */
+    private static class Change
+    {
+        final boolean delete;
+        final String state;
+        final String city;
+        final String type;     // null if a delete gives none
+        final int population;
+
+        Change(boolean delete, String state, String city, String type, int population)
+        {
+            this.delete = delete;
+            this.state = state;
+            this.city = city;
+            this.type = type;
+            this.population = population;
+        }
+    }
+
+    public CityDelta()
+    {
+        changes = new ArrayList<Change>();
+    }
+
+    /**
+     *  Reads a delta file, as UTF-8 like the data file. Lines that can't be parsed are
+     *  reported and skipped. If the file can't be read to the end, that is reported and
+     *  none of its changes are kept, so a delta is never applied in part.
+     *
+     *  @param fileName name of the delta file
+     *  @return         the changes in the file
+     */
+    public static CityDelta read(String fileName)
+    {
+        CityDelta delta = new CityDelta();
+        Scanner in = FileUtils.openToRead(fileName, StandardCharsets.UTF_8);
+        int number = 0;
+        while(in.hasNextLine())
+        {
+            String line = in.nextLine();
+            number++;
+            if(line.trim().isEmpty() || line.startsWith("#"))
+                continue;
+
+            String[] fields = line.split("\t");
+            String op = fields[0].trim().toLowerCase();
+            try
+            {
+                if(op.equals("upsert") && fields.length == 5)
+                    delta.upsert(fields[1], fields[2], fields[3], Integer.parseInt(fields[4].trim()));
+                else if(op.equals("delete") && (fields.length == 3 || fields.length == 4))
+                    delta.delete(fields[1], fields[2], fields.length == 4 ? fields[3] : null);
+                else
+                    System.err.println("ERROR: Bad delta line "+number+" in "+fileName+": "+line);
+            }
+            catch(NumberFormatException e)
+            {
+                System.err.println("ERROR: Bad population on delta line "+number+" in "+fileName+": "+line);
+            }
+        }
+        if(in.ioException() != null)
+        {
+            System.err.println("ERROR: Cannot read delta file "+fileName+" after line "+number+": "
+                                +in.ioException());
+            delta.changes.clear();
+        }
+        in.close();
+        return delta;
+    }
+
+    /**
+     *  Adds an upsert to the delta.
+     *
+     *  @param state    state name
+     *  @param city     city name
+     *  @param type     city designation (city, town, ...)
+     *  @param pop      population
+     */
+    public void upsert(String state, String city, String type, int pop)
+    {
+        changes.add(new Change(false, state.trim(), city.trim(), type.trim(), pop));
+    }
+
+    /**
+     *  Adds a delete to the delta.
+     *
+     *  @param state    state name
+     *  @param city     city name
+     *  @param type     city designation, or null to delete every city with the name
+     */
+    public void delete(String state, String city, String type)
+    {
+        changes.add(new Change(true, state.trim(), city.trim(), type == null ? null : type.trim(), 0));
+    }
+
+    /**	Accessor methods; the counts are for the last applyTo */
+    public int size() { return changes.size(); }
+    public int getUpdated() { return updated; }
+    public int getAdded() { return added; }
+    public int getRemoved() { return removed; }
+
+    /**
+     *  Applies the changes to a dataset, building a new dataset and leaving the old one
+     *  as it was. The changes are made in a heap copy of the table, which is moved off
+     *  the heap again if the old table was.
+     *
+     *  @param dataset  the dataset to change
+     *  @param cache    caches query results; starts a new generation for the new dataset
+     *  @return         the changed dataset
+     */
+    public CityDataset applyTo(CityDataset dataset, QueryCache cache)
+    {
+        CityTable old = dataset.getTable();
+        CityLookup lookup = dataset.getLookup();
+        int oldSize = old.size();
+        CityTable table = old.copy();
+        boolean[] moved = new boolean[oldSize];
+        boolean[] deleted = new boolean[oldSize + changes.size()];   // each change adds at most one row
+        Map<String, List<Integer>> addedRows = new HashMap<String, List<Integer>>();  // key -> added row ids
+        updated = added = removed = 0;
+
+        for(Change change : changes)
+        {
+            String key = CityLookup.fold(change.state) + '\t' + CityLookup.fold(change.city);
+            int stateKey = table.findStateKey(CityLookup.fold(change.state));
+            List<Integer> matches = new ArrayList<Integer>();
+            for(int row : lookup.cityRows(change.city))
+            {
+                if(!deleted[row] && table.getStateKey(row) == stateKey)
+                    matches.add(row);
+            }
+            for(int row : addedRows.getOrDefault(key, new ArrayList<Integer>()))
+            {
+                if(!deleted[row])
+                    matches.add(row);
+            }
+
+            if(change.delete)
+            {
+                for(int row : matches)
+                {
+                    if(change.type == null || table.getCityType(row).equalsIgnoreCase(change.type))
+                    {
+                        deleted[row] = true;
+                        removed++;
+                    }
+                }
+                continue;
+            }
+
+            int row = -1;
+            for(int match : matches)
+            {
+                if(matches.size() == 1 || table.getCityType(match).equalsIgnoreCase(change.type))
+                    row = match;
+            }
+            if(row < 0)
+            {
+                row = table.add(change.state, change.city, change.type, change.population);
+                addedRows.computeIfAbsent(key, k -> new ArrayList<Integer>()).add(row);
+                added++;
+            }
+            else
+            {
+                if(row < oldSize && table.getPopulation(row) != change.population)
+                    moved[row] = true;
+                table.setPopulation(row, change.population);
+                table.setCityType(row, change.type);
+                updated++;
+            }
+        }
+
+        int[] remap = table.removeRows(deleted);
+        if(old.isOffHeap())
+        {
+            table.freeze();
+            table = table.offHeap();
+        }
+
+        SortIndexes indexes = dataset.getIndexes().patched(table, remap, moved);
+        return new CityDataset(table, indexes, lookup.patched(table, remap, oldSize), cache);
+    }
+}
@@ -0,0 +1,299 @@
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ *	CityLoader - Loads the tab-separated population data file into a CityTable.
+ *
+ *	The file is memory-mapped with FileUtils.mapToRead and scanned byte by byte for
+ *	tabs and newlines. Populations are parsed straight from their digits, city names
+ *	are copied as raw bytes into the table's name column, and state and designation
+ *	values are interned, so each distinct value becomes a String only once no matter
+ *	how many lines repeat it.
+ *
+ *	Each line is: state TAB city TAB designation TAB population. Blank lines and a
+ *	trailing carriage return are ignored; a line with missing fields, or with a
+ *	population that is not a non-negative int, is reported and skipped.
+ *
+ *	Files larger than PARALLEL_THRESHOLD are split by FileUtils.splitToRead into
+ *	byte ranges that start on line boundaries. Each range is mapped and parsed into
+ *	its own CityTable on a worker thread, and the pieces are then appended to the
+ *	result in file order, so the row order is the same as a single-threaded load.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class CityLoader
+{
+    public static final long PARALLEL_THRESHOLD = 8L << 20;  // files this large are loaded in parallel
+    private static final long MAX_RANGE = 1L << 30;         // largest byte range mapped at once
+
+    private final Interner states;   // distinct state values seen so far
+    private final Interner types;    // distinct designation values seen so far
+
+    public CityLoader()
+    {
+        states = new Interner();
+        types = new Interner();
+    }
+
+    /**
+     *  Loads every line of a data file into a table.
+     *
+     *  @param fileName name of the data file
+     *  @param table    the table to add rows to
+     *  @return         the number of rows added
+     */
+    public static int load(String fileName, CityTable table)
+    {
+        return load(fileName, table, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     *  Loads every line of a data file into a table, using up to threads worker threads
+     *  if the file is large enough to be worth splitting.
+     *
+     *  @param fileName name of the data file
+     *  @param table    the table to add rows to
+     *  @param threads  the most threads to parse with
+     *  @return         the number of rows added
+     *  @throws UncheckedIOException if the file can't be read
+     *  @throws IllegalStateException if a worker thread fails or is interrupted
+     */
+    public static int load(String fileName, CityTable table, int threads)
+    {
+        long start = Metrics.start();
+        int count = loadParts(fileName, table, threads);
+        Metrics.stop(Metrics.Phase.PARSE, start);
+        return count;
+    }
+
+    /** Does the work of load(fileName, table, threads) */
+    private static int loadParts(String fileName, CityTable table, int threads)
+    {
+        long size = new java.io.File(fileName).length();
+        int parts = (int)Math.max(threads, (size + MAX_RANGE - 1) / MAX_RANGE);
+        if(size < PARALLEL_THRESHOLD || parts < 2)
+            parts = 1;
+
+        long[] bounds = FileUtils.splitToRead(fileName, parts);
+        if(bounds.length == 2)
+        {
+            ByteBuffer data = FileUtils.mapToRead(fileName, bounds[0], bounds[1]);
+            return new CityLoader().parse(data, 0, data.limit(), table);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, bounds.length-1));
+        try
+        {
+            List<Future<CityTable>> pieces = new ArrayList<Future<CityTable>>();
+            for(int i=0; i+1<bounds.length; i++)
+            {
+                long start = bounds[i];
+                long end = bounds[i+1];
+                pieces.add(pool.submit(() -> {
+                    CityTable piece = new CityTable();
+                    ByteBuffer data = FileUtils.mapToRead(fileName, start, end);
+                    new CityLoader().parse(data, 0, data.limit(), piece);
+                    return piece;
+                }));
+            }
+
+            int count = 0;
+            for(Future<CityTable> piece : pieces)
+            {
+                CityTable rows = piece.get();
+                table.addAll(rows);
+                count += rows.size();
+            }
+            return count;
+        }
+        catch(ExecutionException e)
+        {
+            if(e.getCause() instanceof RuntimeException)
+                throw (RuntimeException)e.getCause();
+            throw new IllegalStateException("Cannot load "+fileName, e.getCause());
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted loading "+fileName, e);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     *  Parses the lines in data[from, to) into a table. from must be the start of a line.
+     *
+     *  @param data     the file's bytes
+     *  @param from     position of the first byte to parse
+     *  @param to       position one past the last byte to parse
+     *  @param table    the table to add rows to
+     *  @return         the number of rows added
+     */
+    public int parse(ByteBuffer data, int from, int to, CityTable table)
+    {
+        int count = 0;
+        int[] tabs = new int[3];
+        int lineStart = from;
+
+        while(lineStart < to)
+        {
+            int numTabs = 0;
+            int pos = lineStart;
+            while(pos < to && data.get(pos) != '\n')
+            {
+                if(data.get(pos) == '\t' && numTabs < 3)
+                    tabs[numTabs++] = pos;
+                pos++;
+            }
+            int lineEnd = pos;
+            if(lineEnd > lineStart && data.get(lineEnd-1) == '\r')
+                lineEnd--;
+
+            int pop = numTabs == 3 ? parseInt(data, tabs[2]+1, lineEnd) : -1;
+            if(pop >= 0)
+            {
+                String state = states.intern(data, lineStart, tabs[0]);
+                String type = types.intern(data, tabs[1]+1, tabs[2]);
+                table.add(state, data, tabs[0]+1, tabs[1], type, pop);
+                count++;
+            }
+            else if(numTabs == 3)
+            {
+                System.err.println("ERROR: skipping line with bad population: "+decode(data, lineStart, lineEnd));
+            }
+            else if(lineEnd > lineStart)
+            {
+                System.err.println("ERROR: skipping malformed line: "+decode(data, lineStart, lineEnd));
+            }
+
+            lineStart = pos+1;
+        }
+        return count;
+    }
+
+    /**
+     *  Parses a non-negative int from its ASCII digits, ignoring spaces around it.
+     *
+     *  @param data     the file's bytes
+     *  @param from     position of the first byte of the field
+     *  @param to       position one past the last byte of the field
+     *  @return         the value of the digits, or -1 if the field is empty, holds
+     *                  anything but digits, or is too large for an int
+     */
+    private static int parseInt(ByteBuffer data, int from, int to)
+    {
+        while(from < to && data.get(from) == ' ')
+            from++;
+        while(to > from && data.get(to-1) == ' ')
+            to--;
+        if(from == to)
+            return -1;
+
+        int value = 0;
+        for(int i=from; i<to; i++)
+        {
+            int digit = data.get(i) - '0';
+            if(digit < 0 || digit > 9 || value > (Integer.MAX_VALUE - digit) / 10)
+                return -1;
+            value = value*10 + digit;
+        }
+        return value;
+    }
+
+    /** @return the bytes data[from, to) decoded as UTF-8 */
+    private static String decode(ByteBuffer data, int from, int to)
+    {
+        byte[] bytes = new byte[to-from];
+        data.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     *  Small open-addressing hash set of Strings keyed by their UTF-8 bytes, so a value
+     *  can be looked up straight from the file's bytes without decoding it first.
+     */
+    private static class Interner
+    {
+        private byte[][] keys = new byte[64][];
+        private String[] values = new String[64];
+        private int size = 0;
+
+        /**
+         *  @param data     the file's bytes
+         *  @param from     position of the first byte of the value
+         *  @param to       position one past the last byte of the value
+         *  @return         the one String for those bytes
+         */
+        String intern(ByteBuffer data, int from, int to)
+        {
+            int hash = 0;
+            for(int i=from; i<to; i++)
+                hash = 31*hash + data.get(i);
+
+            int mask = keys.length-1;
+            int slot = hash & mask;
+            while(keys[slot] != null)
+            {
+                if(matches(keys[slot], data, from, to))
+                    return values[slot];
+                slot = (slot+1) & mask;
+            }
+
+            byte[] key = new byte[to-from];
+            data.get(from, key);
+            keys[slot] = key;
+            values[slot] = new String(key, StandardCharsets.UTF_8);
+            String value = values[slot];
+            if(++size * 2 > keys.length)
+                grow();
+            return value;
+        }
+
+        private boolean matches(byte[] key, ByteBuffer data, int from, int to)
+        {
+            if(key.length != to-from)
+                return false;
+            for(int i=0; i<key.length; i++)
+            {
+                if(key[i] != data.get(from+i))
+                    return false;
+            }
+            return true;
+        }
+
+        private void grow()
+        {
+            byte[][] oldKeys = keys;
+            String[] oldValues = values;
+            keys = new byte[oldKeys.length*2][];
+            values = new String[oldKeys.length*2];
+
+            int mask = keys.length-1;
+            for(int i=0; i<oldKeys.length; i++)
+            {
+                if(oldKeys[i] == null)
+                    continue;
+                int hash = 0;
+                for(byte b : oldKeys[i])
+                    hash = 31*hash + b;
+
+                int slot = hash & mask;
+                while(keys[slot] != null)
+                    slot = (slot+1) & mask;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
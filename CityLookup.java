@@ -0,0 +1,366 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ *	CityLookup - Case-insensitive lookup indexes over a CityTable, built once at load.
+ *
+ *	Two hash indexes map a case-folded state name and a case-folded city name to the
+ *	ids of the rows that have it, so checking a name and fetching its rows costs O(1)
+ *	plus the number of matches. A sorted array of the distinct folded city names
+ *	answers "starts with" and autocomplete lookups by binary search.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class CityLookup
+{
+    private final int[] NO_ROWS = new int[0];
+
+    private final Map<String, int[]> stateRows;  // folded state name -> row ids
+    private final Map<String, int[]> cityRows;   // folded city name -> row ids
+    private final String[] sortedNames;          // distinct folded city names, sorted
+    private final String[] displayNames;         // the name as written in the file, same order
+
+    /**
+     *  Builds the indexes for every row of a table.
+     *
+     *  @param table    the table to index
+     */
+    public CityLookup(CityTable table)
+    {
+        int size = table.size();
+
+        String[] stateKeys = new String[table.numStates()];
+        for(int id=0; id<stateKeys.length; id++)
+            stateKeys[id] = fold(table.stateName(id));
+        int[] stateOfRow = new int[size];
+        for(int row=0; row<size; row++)
+            stateOfRow[row] = table.getStateId(row);
+        stateRows = group(stateKeys, stateOfRow);
+
+        int[] nameOfRow = table.nameKeys();
+        StringDictionary keys = table.nameKeyDictionary();
+        String[] nameKeys = new String[keys.size()];
+        for(int id=0; id<nameKeys.length; id++)
+            nameKeys[id] = keys.get(id);
+        cityRows = group(nameKeys, nameOfRow);
+
+        String[] firstSeen = new String[nameKeys.length];
+        for(int row=0; row<size; row++)
+        {
+            if(firstSeen[nameOfRow[row]] == null)
+                firstSeen[nameOfRow[row]] = table.getCityName(row);
+        }
+        int[] rank = keys.ranks();
+        sortedNames = new String[nameKeys.length];
+        displayNames = new String[nameKeys.length];
+        for(int id=0; id<nameKeys.length; id++)
+        {
+            sortedNames[rank[id]] = nameKeys[id];
+            displayNames[rank[id]] = firstSeen[id];
+        }
+    }
+
+    /** Creates a lookup from already built indexes */
+    private CityLookup(Map<String, int[]> stateRows, Map<String, int[]> cityRows, String[] sortedNames,
+                        String[] displayNames)
+    {
+        this.stateRows = stateRows;
+        this.cityRows = cityRows;
+        this.sortedNames = sortedNames;
+        this.displayNames = displayNames;
+    }
+
+    /**
+     *  Builds the lookup of a changed copy of the table by patching this one: removed
+     *  rows are dropped and the rest renumbered, and the added rows are appended to the
+     *  lists of their state and name. Names with no rows left are dropped from the
+     *  sorted names, and new names are merged in. Lists of rows are shared with this
+     *  lookup when no rows were removed.
+     *
+     *  @param updated  the changed table: this lookup's rows, then any added rows, after
+     *                  removed rows were taken out with CityTable.removeRows
+     *  @param remap    the new id of each row id before the removal, or -1 if removed;
+     *                  ids from oldSize on are the added rows
+     *  @param oldSize  the number of rows this lookup was built for
+     *  @return         the lookup of the updated table
+     */
+    public CityLookup patched(CityTable updated, int[] remap, int oldSize)
+    {
+        boolean renumbered = false;
+        for(int row=0; row<oldSize && !renumbered; row++)
+            renumbered = remap[row] != row;
+        Map<String, int[]> states = remapRows(stateRows, remap, renumbered);
+        Map<String, int[]> cities = remapRows(cityRows, remap, renumbered);
+
+        Map<String, List<Integer>> addedStates = new HashMap<String, List<Integer>>();
+        Map<String, List<Integer>> addedCities = new HashMap<String, List<Integer>>();
+        Map<String, String> newNames = new HashMap<String, String>();
+        for(int row=oldSize; row<remap.length; row++)
+        {
+            int id = remap[row];
+            if(id < 0)
+                continue;
+            addedStates.computeIfAbsent(fold(updated.getStateName(id)), key -> new ArrayList<Integer>()).add(id);
+            String name = updated.getCityName(id);
+            String key = fold(name);
+            addedCities.computeIfAbsent(key, k -> new ArrayList<Integer>()).add(id);
+            if(!cities.containsKey(key))
+                newNames.putIfAbsent(key, name);
+        }
+        appendRows(states, addedStates);
+        appendRows(cities, addedCities);
+
+        String[] added = newNames.keySet().toArray(new String[0]);
+        Arrays.sort(added);
+        String[] names = new String[sortedNames.length + added.length];
+        String[] display = new String[names.length];
+        int count = 0;
+        int next = 0;
+        for(int i=0; i<sortedNames.length; i++)
+        {
+            if(!cities.containsKey(sortedNames[i]) || newNames.containsKey(sortedNames[i]))
+                continue;
+            while(next < added.length && added[next].compareTo(sortedNames[i]) < 0)
+            {
+                display[count] = newNames.get(added[next]);
+                names[count++] = added[next++];
+            }
+            display[count] = displayNames[i];
+            names[count++] = sortedNames[i];
+        }
+        while(next < added.length)
+        {
+            display[count] = newNames.get(added[next]);
+            names[count++] = added[next++];
+        }
+        return new CityLookup(states, cities, Arrays.copyOf(names, count), Arrays.copyOf(display, count));
+    }
+
+    /**
+     *  Renumbers the rows in a map of row lists, dropping removed rows and any key left
+     *  with no rows.
+     *
+     *  @param map          key -> row ids
+     *  @param remap        the new id of each old row id, or -1 if removed
+     *  @param renumbered   false if every row keeps its id, so the lists can be shared
+     *  @return             a new map of the renumbered lists
+     */
+    private static Map<String, int[]> remapRows(Map<String, int[]> map, int[] remap, boolean renumbered)
+    {
+        Map<String, int[]> result = new HashMap<String, int[]>(map.size() * 2);
+        for(Map.Entry<String, int[]> entry : map.entrySet())
+        {
+            int[] rows = entry.getValue();
+            if(renumbered)
+            {
+                int[] kept = new int[rows.length];
+                int count = 0;
+                for(int row : rows)
+                {
+                    if(remap[row] >= 0)
+                        kept[count++] = remap[row];
+                }
+                rows = count == rows.length ? kept : Arrays.copyOf(kept, count);
+            }
+            if(rows.length > 0)
+                result.put(entry.getKey(), rows);
+        }
+        return result;
+    }
+
+    /** Appends each key's added rows, which all come after its existing rows, to its list */
+    private static void appendRows(Map<String, int[]> map, Map<String, List<Integer>> added)
+    {
+        for(Map.Entry<String, List<Integer>> entry : added.entrySet())
+        {
+            int[] rows = map.getOrDefault(entry.getKey(), new int[0]);
+            int[] grown = Arrays.copyOf(rows, rows.length + entry.getValue().size());
+            for(int i=0; i<entry.getValue().size(); i++)
+                grown[rows.length + i] = entry.getValue().get(i);
+            map.put(entry.getKey(), grown);
+        }
+    }
+
+    /**
+     *  Groups row ids by key with a counting pass, so each key gets one exactly sized
+     *  array of its rows, in table order.
+     *
+     *  @param keys     the folded key for each key id
+     *  @param keyOfRow the key id of each row
+     *  @return         folded key -> row ids
+     */
+    private Map<String, int[]> group(String[] keys, int[] keyOfRow)
+    {
+        int[] counts = new int[keys.length];
+        for(int key : keyOfRow)
+            counts[key]++;
+
+        int[][] rows = new int[keys.length][];
+        for(int id=0; id<keys.length; id++)
+            rows[id] = new int[counts[id]];
+
+        int[] filled = new int[keys.length];
+        for(int row=0; row<keyOfRow.length; row++)
+        {
+            int key = keyOfRow[row];
+            rows[key][filled[key]++] = row;
+        }
+
+        Map<String, int[]> map = new HashMap<String, int[]>(keys.length * 2);
+        for(int id=0; id<keys.length; id++)
+        {
+            int[] existing = map.get(keys[id]);
+            if(existing == null)
+                map.put(keys[id], rows[id]);
+            else
+                map.put(keys[id], mergeRows(existing, rows[id]));
+        }
+        return map;
+    }
+
+    /**
+     *  Merges two sorted lists of row ids. Needed when two dictionary values fold to the
+     *  same key, like "Texas" and "TEXAS".
+     */
+    private int[] mergeRows(int[] a, int[] b)
+    {
+        int[] merged = new int[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while(i<a.length && j<b.length)
+            merged[k++] = a[i] < b[j] ? a[i++] : b[j++];
+        while(i<a.length)
+            merged[k++] = a[i++];
+        while(j<b.length)
+            merged[k++] = b[j++];
+        return merged;
+    }
+
+    /**
+     *  @param value    a state or city name
+     *  @return         the case-folded key for value
+     */
+    public static String fold(String value)
+    {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     *  @param state    a state name, in any case
+     *  @return         true if any city is in that state
+     */
+    public boolean hasState(String state)
+    {
+        return stateRows.containsKey(fold(state));
+    }
+
+    /**
+     *  @param city     a city name, in any case
+     *  @return         true if any city has that name
+     */
+    public boolean hasCity(String city)
+    {
+        return cityRows.containsKey(fold(city));
+    }
+
+    /**
+     *  @param state    a state name, in any case
+     *  @return         the ids of the rows in that state, in table order; must not be modified
+     */
+    public int[] stateRows(String state)
+    {
+        return stateRows.getOrDefault(fold(state), NO_ROWS);
+    }
+
+    /**
+     *  @param city     a city name, in any case
+     *  @return         the ids of the rows with that name, in table order; must not be modified
+     */
+    public int[] cityRows(String city)
+    {
+        return cityRows.getOrDefault(fold(city), NO_ROWS);
+    }
+
+    /**
+     *  Finds the distinct city names that start with a prefix, ignoring case.
+     *
+     *  @param prefix   the start of a city name
+     *  @param max      the most names to return
+     *  @return         up to max names, in name order
+     */
+    public String[] namesStartingWith(String prefix, int max)
+    {
+        int first = firstWithPrefix(fold(prefix));
+        int last = endOfPrefix(fold(prefix), first);
+        return Arrays.copyOfRange(displayNames, first, Math.min(last, first + max));
+    }
+
+    /**
+     *  Finds every row whose city name starts with a prefix, ignoring case.
+     *
+     *  @param prefix   the start of a city name
+     *  @return         the ids of the matching rows, grouped by name in name order
+     */
+    public int[] rowsStartingWith(String prefix)
+    {
+        String key = fold(prefix);
+        int first = firstWithPrefix(key);
+        int last = endOfPrefix(key, first);
+
+        int count = 0;
+        for(int i=first; i<last; i++)
+            count += cityRows.get(sortedNames[i]).length;
+
+        int[] rows = new int[count];
+        int filled = 0;
+        for(int i=first; i<last; i++)
+        {
+            int[] matches = cityRows.get(sortedNames[i]);
+            System.arraycopy(matches, 0, rows, filled, matches.length);
+            filled += matches.length;
+        }
+        return rows;
+    }
+
+    /**
+     *  Binary searches for the first sorted name that is not before key. Every name
+     *  starting with key comes at or after this position.
+     */
+    private int firstWithPrefix(String key)
+    {
+        int low = 0;
+        int high = sortedNames.length;
+        while(low < high)
+        {
+            int middle = (low+high) >>> 1;
+            if(sortedNames[middle].compareTo(key) < 0)
+                low = middle+1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     *  Binary searches for the end of the run of names starting with key, given where it
+     *  starts.
+     */
+    private int endOfPrefix(String key, int first)
+    {
+        int low = first;
+        int high = sortedNames.length;
+        while(low < high)
+        {
+            int middle = (low+high) >>> 1;
+            if(sortedNames[middle].startsWith(key))
+                low = middle+1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+}
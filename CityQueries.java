@@ -0,0 +1,348 @@
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ *	CityQueries - The queries behind the Population menu, over a loaded CityTable and
+ *	its SortIndexes and CityLookup. Every query returns row ids and never changes the
+ *	table or the indexes, so the same object can serve the interactive menu and batch
+ *	mode.
+ *
+ *	Results are remembered in a QueryCache keyed by the shape of the query, so asking
+ *	the same question again is a hash lookup and a copy. Each CityQueries starts a new
+ *	generation of its cache, so results of an earlier dataset are never returned.
+ *	Every query's time and allocation are recorded in Metrics.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class CityQueries
+{
+    private final CityTable table;
+    private final SortIndexes indexes;
+    private final CityLookup lookup;
+    private final QueryCache cache;
+    private final int generation;   // this dataset's generation in the cache
+    private final GroupStats[][] rollups;   // rollup of the whole table per GroupBy, null until asked for
+    private volatile PopulationRangeIndex ranges;   // null until the population index is built
+
+    /**
+     *  @param table    the loaded cities
+     *  @param indexes  the table's sort-order indexes
+     *  @param lookup   the table's state and city name lookups
+     */
+    public CityQueries(CityTable table, SortIndexes indexes, CityLookup lookup)
+    {
+        this(table, indexes, lookup, new QueryCache());
+    }
+
+    /**
+     *  @param table    the loaded cities
+     *  @param indexes  the table's sort-order indexes
+     *  @param lookup   the table's state and city name lookups
+     *  @param cache    caches the results; may be shared with earlier datasets' queries
+     */
+    public CityQueries(CityTable table, SortIndexes indexes, CityLookup lookup, QueryCache cache)
+    {
+        this.table = table;
+        this.indexes = indexes;
+        this.lookup = lookup;
+        this.cache = cache;
+        generation = cache.newGeneration();
+        rollups = new GroupStats[GroupBy.values().length][];
+        if(indexes.isBuilt(SortOrder.POPULATION_ASCENDING))
+            ranges = new PopulationRangeIndex(table, indexes.rows(SortOrder.POPULATION_ASCENDING));
+    }
+
+    /**	Accessor methods */
+    public CityTable getTable() { return table; }
+    public SortIndexes getIndexes() { return indexes; }
+    public CityLookup getLookup() { return lookup; }
+    public QueryCache getCache() { return cache; }
+
+    /**
+     *  @return the population range index; built with the dataset if its population
+     *          index is, and otherwise (lazy indexes) on first use
+     */
+    public PopulationRangeIndex getRanges()
+    {
+        PopulationRangeIndex index = ranges;
+        if(index == null)
+        {
+            synchronized(this)
+            {
+                if(ranges == null)
+                    ranges = new PopulationRangeIndex(table, indexes.rows(SortOrder.POPULATION_ASCENDING));
+                index = ranges;
+            }
+        }
+        return index;
+    }
+
+    /** Rejects a negative number of rows to return */
+    private static void checkCount(int k)
+    {
+        if(k < 0)
+            throw new IllegalArgumentException("the number of rows must not be negative");
+    }
+
+    /**
+     *  Finds the first k rows of the whole table in an order. Reads the index for the
+     *  order if it is built, and otherwise (lazy indexes) scans the table once and keeps
+     *  the best k in a bounded heap, instead of building the whole index for one query.
+     *
+     *  @param order    the order to list the rows in
+     *  @param k        the most rows to return
+     *  @return         up to k row ids, in order
+     *  @throws IllegalArgumentException if k is negative
+     */
+    public int[] top(SortOrder order, int k)
+    {
+        checkCount(k);
+        long start = Metrics.start();
+        long allocated = Metrics.allocatedBytes();
+        int[] rows;
+        if(indexes.isBuilt(order))
+        {
+            int[] index = indexes.rows(order);
+            rows = Arrays.copyOf(index, Math.min(k, index.length));
+        }
+        else
+        {
+            String key = QueryCache.key("top", null, order, k);
+            rows = cache.get(generation, key);
+            if(rows == null)
+            {
+                rows = TopKSelector.selectAll(table.size(), order.comparator(table), k);
+                cache.put(generation, key, rows);
+            }
+        }
+        Metrics.stopQuery(start, allocated);
+        return rows;
+    }
+
+    /**
+     *  Finds the first k rows in an order out of a list of candidate rows.
+     *
+     *  @param order        the order to list the rows in
+     *  @param candidates   the rows to choose from; not modified
+     *  @param k            the most rows to return
+     *  @return             up to k row ids, in order
+     *  @throws IllegalArgumentException if k is negative
+     */
+    public int[] top(SortOrder order, int[] candidates, int k)
+    {
+        checkCount(k);
+        return TopKSelector.select(candidates, candidates.length, order.comparator(table), k);
+    }
+
+    /**
+     *  @param state    a state name, in any case
+     *  @param k        the most rows to return
+     *  @return         the k most populous cities in the state, most populous first
+     */
+    public int[] mostPopulousInState(String state, int k)
+    {
+        return select(new CityQuery().inStates(state).limit(k));
+    }
+
+    /**
+     *  @param city     a city name, in any case
+     *  @param k        the most rows to return
+     *  @return         up to k cities with that name, most populous first
+     */
+    public int[] matchingName(String city, int k)
+    {
+        return select(new CityQuery().named(city).limit(k));
+    }
+
+    /**
+     *  @param prefix   the start of a city name, in any case
+     *  @param k        the most rows to return
+     *  @return         up to k cities whose name starts with prefix, most populous first
+     */
+    public int[] nameStartingWith(String prefix, int k)
+    {
+        return select(new CityQuery().nameStartingWith(prefix).limit(k));
+    }
+
+    /**
+     *  Sorts the whole table afresh with a chosen algorithm instead of reading an index,
+     *  for comparing the algorithms; the sort is timed in Metrics. Not cached.
+     *
+     *  @param order        the order to sort the rows into
+     *  @param algorithm    the sort to use
+     *  @param k            the most rows to return
+     *  @return             up to k row ids, in order
+     *  @throws IllegalArgumentException if k is negative
+     */
+    public int[] sort(SortOrder order, SortAlgorithm algorithm, int k)
+    {
+        checkCount(k);
+        long start = Metrics.start();
+        long allocated = Metrics.allocatedBytes();
+        int[] rows = CitySorts.identity(table.size());
+        long sortStart = Metrics.start();
+        algorithm.create().sort(table, rows, order);
+        Metrics.stop(Metrics.Phase.SORT, sortStart);
+        rows = Arrays.copyOf(rows, Math.min(k, rows.length));
+        Metrics.stopQuery(start, allocated);
+        return rows;
+    }
+
+    /**
+     *  Runs a CityQuery, answering from the cache if the same query was run before.
+     *
+     *  The query is planned from the indexes that can narrow it down: the rows of its
+     *  states, of its exact name or name prefix from the CityLookup, and the slice of
+     *  its population range from the population index. The smallest of these is the
+     *  candidate list; only candidates are tested against the filters, and the matches
+     *  go through a top-k selection. If no lookup narrows the query much, but the index
+     *  for its order is built, walking that index and stopping at the limit is expected
+     *  to touch fewer rows, and is done instead.
+     *
+     *  @param query    the query to run
+     *  @return         up to limit matching row ids, in the query's order
+     */
+    public int[] select(CityQuery query)
+    {
+        long start = Metrics.start();
+        long allocated = Metrics.allocatedBytes();
+        String key = QueryCache.key("select", query);
+        int[] rows = cache.get(generation, key);
+        if(rows == null)
+        {
+            rows = evaluate(query);
+            cache.put(generation, key, rows);
+        }
+        Metrics.stopQuery(start, allocated);
+        return rows;
+    }
+
+    /** Plans and runs a query; see select */
+    private int[] evaluate(CityQuery query)
+    {
+        long filterStart = Metrics.start();
+        IntPredicate filter = query.compile(table);
+        SortOrder order = query.getOrder();
+        int limit = query.getLimit();
+
+        int[] candidates = null;
+        if(query.getStates() != null)
+        {
+            int count = 0;
+            for(String state : query.getStates())
+                count += lookup.stateRows(state).length;
+            candidates = new int[count];
+            int filled = 0;
+            for(String state : query.getStates())
+            {
+                int[] rows = lookup.stateRows(state);
+                System.arraycopy(rows, 0, candidates, filled, rows.length);
+                filled += rows.length;
+            }
+        }
+        if(query.getName() != null && (candidates == null || lookup.cityRows(query.getName()).length < candidates.length))
+            candidates = lookup.cityRows(query.getName());
+        if(query.getPrefix() != null && query.getName() == null)
+        {
+            int[] rows = lookup.rowsStartingWith(query.getPrefix());
+            if(candidates == null || rows.length < candidates.length)
+                candidates = rows;
+        }
+
+        // the population index slice [from, to) holding the population range
+        int from = 0;
+        int to = table.size();
+        if(indexes.isBuilt(SortOrder.POPULATION_ASCENDING) && query.hasPopulationRange())
+        {
+            PopulationRangeIndex index = getRanges();
+            from = index.firstAtLeast(query.getMinPopulation());
+            to = Math.max(from, index.firstAtLeast(query.getMaxPopulation() + 1L));
+            if(candidates == null || to - from < candidates.length)
+                candidates = index.between(query.getMinPopulation(), query.getMaxPopulation(), false,
+                                            Integer.MAX_VALUE);
+        }
+
+        // walking the order's index: a population order only needs the range's slice
+        boolean walkable = indexes.isBuilt(order);
+        boolean populationOrder = order.isByPopulation();
+        long walkLength = populationOrder ? to - from : table.size();
+        long matches = Math.max(1, candidates == null ? walkLength : candidates.length);
+        long scan = candidates == null ? table.size() : candidates.length;
+        if(walkable && (limit >= matches ? walkLength : (long)limit * walkLength / matches) < scan)
+        {
+            int[] index = indexes.rows(order);
+            int start = 0;
+            int end = index.length;
+            if(populationOrder)
+            {
+                start = order == SortOrder.POPULATION_ASCENDING ? from : index.length - to;
+                end = start + (to - from);
+            }
+            int[] rows = new int[Math.min(limit, end - start)];
+            int count = 0;
+            for(int i=start; i<end && count<rows.length; i++)
+            {
+                if(filter.test(index[i]))
+                    rows[count++] = index[i];
+            }
+            Metrics.stop(Metrics.Phase.FILTER, filterStart);
+            return Arrays.copyOf(rows, count);
+        }
+
+        if(candidates == null)
+            candidates = CitySorts.identity(table.size());
+        int[] passed = new int[candidates.length];
+        int count = 0;
+        for(int row : candidates)
+        {
+            if(filter.test(row))
+                passed[count++] = row;
+        }
+        Metrics.stop(Metrics.Phase.FILTER, filterStart);
+        return TopKSelector.select(passed, count, order.comparator(table), limit);
+    }
+
+    /**
+     *  Aggregates the population of the whole table by state, by designation or
+     *  altogether, with percentiles. The table never changes, so each rollup is worked
+     *  out once and kept. Reads the rows in population order if that index is built, so
+     *  the percentiles need no sorting.
+     *
+     *  @param by       what to group by
+     *  @return         one GroupStats per group, in group name order; must not be modified
+     */
+    public synchronized GroupStats[] rollup(GroupBy by)
+    {
+        long start = Metrics.start();
+        long allocated = Metrics.allocatedBytes();
+        GroupStats[] groups = rollups[by.ordinal()];
+        if(groups == null)
+        {
+            int[] rows = indexes.isBuilt(SortOrder.POPULATION_ASCENDING) ? indexes.rows(SortOrder.POPULATION_ASCENDING) : null;
+            groups = new CityAggregator().aggregate(table, rows, by, true);
+            Arrays.sort(groups, (a, b) -> a.getName().compareTo(b.getName()));
+            rollups[by.ordinal()] = groups;
+        }
+        Metrics.stopQuery(start, allocated);
+        return groups;
+    }
+
+    /**
+     *  @param state    a state name, in any case
+     *  @return         true if any city is in that state
+     */
+    public boolean hasState(String state)
+    {
+        return lookup.hasState(state);
+    }
+
+    /**
+     *  @param city     a city name, in any case
+     *  @return         the number of cities with that name
+     */
+    public int countMatchingName(String city)
+    {
+        return lookup.cityRows(city).length;
+    }
+}
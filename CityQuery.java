@@ -0,0 +1,324 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.regex.Pattern;
+
+/**
+ *	CityQuery - Builds a query over the city database out of filters, an order and a
+ *	limit, to be run by CityQueries.select:
+ *
+ *		new CityQuery().inStates("Vermont").withDesignation("village")
+ *			.populationBetween(5000, Integer.MAX_VALUE).limit(10)
+ *
+ *	Filters are combined with "and"; a filter that is not set matches every city.
+ *	State, designation and name filters ignore case. The default order is most
+ *	populous first and the default limit is every match. A CityQuery is a plain
+ *	builder and is not meant to be shared between threads while it is being built.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class CityQuery
+{
+    private List<String> states;      // folded state names, or null for any state
+    private String designation;       // folded designation, or null for any
+    private int minPopulation;
+    private int maxPopulation;
+    private String name;              // folded city name, or null for any
+    private String prefix;            // folded start of the city name, or null for any
+    private Pattern regex;            // pattern the whole city name must match, or null
+    private SortOrder order;
+    private int limit;
+
+    public CityQuery()
+    {
+        states = null;
+        designation = null;
+        minPopulation = Integer.MIN_VALUE;
+        maxPopulation = Integer.MAX_VALUE;
+        name = null;
+        prefix = null;
+        regex = null;
+        order = SortOrder.POPULATION_DESCENDING;
+        limit = Integer.MAX_VALUE;
+    }
+
+    /**
+     *  @param names    the states a city may be in
+     *  @return         this query
+     */
+    public CityQuery inStates(String... names)
+    {
+        states = new ArrayList<String>();
+        for(String state : names)
+        {
+            String folded = CityLookup.fold(state);
+            if(!states.contains(folded))
+                states.add(folded);
+        }
+        return this;
+    }
+
+    /**
+     *  @param type     the designation a city must have (city, town, village, ...)
+     *  @return         this query
+     */
+    public CityQuery withDesignation(String type)
+    {
+        designation = CityLookup.fold(type);
+        return this;
+    }
+
+    /**
+     *  @param min      the smallest population a city may have
+     *  @param max      the largest population a city may have
+     *  @return         this query
+     */
+    public CityQuery populationBetween(int min, int max)
+    {
+        minPopulation = min;
+        maxPopulation = max;
+        return this;
+    }
+
+    /**
+     *  @param city     the name a city must have
+     *  @return         this query
+     */
+    public CityQuery named(String city)
+    {
+        name = CityLookup.fold(city);
+        return this;
+    }
+
+    /**
+     *  @param start    the start a city's name must have
+     *  @return         this query
+     */
+    public CityQuery nameStartingWith(String start)
+    {
+        prefix = CityLookup.fold(start);
+        return this;
+    }
+
+    /**
+     *  @param pattern  a regular expression the whole city name must match, ignoring case
+     *  @return         this query
+     *  @throws java.util.regex.PatternSyntaxException if the pattern is not valid
+     */
+    public CityQuery nameMatching(String pattern)
+    {
+        regex = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        return this;
+    }
+
+    /**
+     *  @param order    the order to return the matches in
+     *  @return         this query
+     */
+    public CityQuery orderBy(SortOrder order)
+    {
+        this.order = order;
+        return this;
+    }
+
+    /**
+     *  @param limit    the most matches to return
+     *  @return         this query
+     *  @throws IllegalArgumentException if limit is negative
+     */
+    public CityQuery limit(int limit)
+    {
+        if(limit < 0)
+            throw new IllegalArgumentException("limit must not be negative");
+        this.limit = limit;
+        return this;
+    }
+
+    /**	Accessor methods; the names are case-folded */
+    public List<String> getStates() { return states; }
+    public String getDesignation() { return designation; }
+    public int getMinPopulation() { return minPopulation; }
+    public int getMaxPopulation() { return maxPopulation; }
+    public String getName() { return name; }
+    public String getPrefix() { return prefix; }
+    public SortOrder getOrder() { return order; }
+    public int getLimit() { return limit; }
+
+    /** @return true if the query has a population range */
+    public boolean hasPopulationRange()
+    {
+        return minPopulation != Integer.MIN_VALUE || maxPopulation != Integer.MAX_VALUE;
+    }
+
+    /**
+     *  Compiles the filters against a table's dictionaries, so testing a row compares
+     *  ids and ints: the state, designation, name and prefix filters each become a
+     *  mask over dictionary ids, and only a regex has to look at the name itself.
+     *
+     *  @param table    the table the rows belong to
+     *  @return         a test that is true for the rows that pass every filter
+     */
+    public IntPredicate compile(CityTable table)
+    {
+        boolean[] stateOk = null;
+        if(states != null)
+        {
+            stateOk = new boolean[table.numStates()];
+            for(int id=0; id<stateOk.length; id++)
+                stateOk[id] = states.contains(CityLookup.fold(table.stateName(id)));
+        }
+        boolean[] typeOk = null;
+        if(designation != null)
+        {
+            typeOk = new boolean[table.numTypes()];
+            for(int id=0; id<typeOk.length; id++)
+                typeOk[id] = designation.equals(CityLookup.fold(table.typeName(id)));
+        }
+        boolean[] stateMask = stateOk;
+        boolean[] typeMask = typeOk;
+        boolean[] keyOk = null;
+        if(name != null || prefix != null)
+        {
+            StringDictionary keys = table.nameKeyDictionary();
+            keyOk = new boolean[keys.size()];
+            for(int id=0; id<keyOk.length; id++)
+            {
+                String key = keys.get(id);
+                keyOk[id] = (name == null || key.equals(name)) && (prefix == null || key.startsWith(prefix));
+            }
+        }
+        boolean[] keyMask = keyOk;
+        int[] nameKey = keyOk != null ? table.nameKeys() : null;
+        int min = minPopulation;
+        int max = maxPopulation;
+        Pattern regex = this.regex;
+
+        return row -> {
+            int pop = table.getPopulation(row);
+            if(pop < min || pop > max)
+                return false;
+            if(stateMask != null && !stateMask[table.getStateId(row)])
+                return false;
+            if(typeMask != null && !typeMask[table.getTypeId(row)])
+                return false;
+            if(keyMask != null && !keyMask[nameKey[row]])
+                return false;
+            return regex == null || regex.matcher(table.getCityName(row)).matches();
+        };
+    }
+
+    /**
+     *  Builds a query from named parameters, as given to batch mode or the HTTP server:
+     *  state (names separated by commas), type, pop (MIN..MAX, either end may be left
+     *  out), name, prefix, regex, order (pop or name, optionally followed by -asc or
+     *  -desc) and limit.
+     *
+     *  @param params   parameter name -> value
+     *  @return         the query
+     *  @throws IllegalArgumentException if a parameter is unknown or can't be parsed
+     */
+    public static CityQuery parse(Map<String, String> params)
+    {
+        CityQuery query = new CityQuery();
+        for(Map.Entry<String, String> param : params.entrySet())
+        {
+            String value = param.getValue().trim();
+            switch(param.getKey())
+            {
+                case "state":
+                    query.inStates(value.split("\\s*,\\s*"));
+                    break;
+                case "type":
+                    query.withDesignation(value);
+                    break;
+                case "pop":
+                    int[] range = parseRange(value);
+                    query.populationBetween(range[0], range[1]);
+                    break;
+                case "name":
+                    query.named(value);
+                    break;
+                case "prefix":
+                    query.nameStartingWith(value);
+                    break;
+                case "regex":
+                    query.nameMatching(value);
+                    break;
+                case "order":
+                    query.orderBy(parseOrder(value));
+                    break;
+                case "limit":
+                    query.limit(Integer.parseInt(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown filter "+param.getKey());
+            }
+        }
+        return query;
+    }
+
+    /**
+     *  Reads a population range, MIN..MAX. Either end may be left out, for no bound on
+     *  that side, and the numbers may have commas.
+     *
+     *  @param value    the range
+     *  @return         the smallest and largest population in the range
+     *  @throws IllegalArgumentException if the range can't be parsed
+     */
+    public static int[] parseRange(String value)
+    {
+        int dots = value.indexOf("..");
+        if(dots < 0)
+            throw new IllegalArgumentException("a population range must be MIN..MAX");
+        String min = value.substring(0, dots).trim().replace(",", "");
+        String max = value.substring(dots + 2).trim().replace(",", "");
+        return new int[] { min.isEmpty() ? Integer.MIN_VALUE : Integer.parseInt(min),
+                            max.isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(max) };
+    }
+
+    /**
+     *  @param value    pop or name, optionally followed by -asc or -desc; population
+     *                  defaults to descending and name to ascending
+     *  @return         the order
+     */
+    public static SortOrder parseOrder(String value)
+    {
+        String[] parts = value.toLowerCase().split("-");
+        boolean byName = parts[0].equals("name");
+        if(!byName && !parts[0].startsWith("pop") || parts.length > 2)
+            throw new IllegalArgumentException("order must be pop or name, then -asc or -desc");
+        boolean descending = parts.length == 1 ? !byName : parts[1].equals("desc");
+        if(parts.length == 2 && !parts[1].equals("asc") && !parts[1].equals("desc"))
+            throw new IllegalArgumentException("order must be pop or name, then -asc or -desc");
+        if(byName)
+            return descending ? SortOrder.NAME_DESCENDING : SortOrder.NAME_ASCENDING;
+        return descending ? SortOrder.POPULATION_DESCENDING : SortOrder.POPULATION_ASCENDING;
+    }
+
+    /** @return the filters in a fixed form, the same for two queries that ask the same thing */
+    @Override
+    public String toString()
+    {
+        StringBuilder text = new StringBuilder();
+        if(states != null)
+        {
+            String[] sorted = states.toArray(new String[0]);
+            Arrays.sort(sorted);
+            text.append("state=").append(String.join(",", sorted)).append(' ');
+        }
+        if(designation != null)
+            text.append("type=").append(designation).append(' ');
+        if(hasPopulationRange())
+            text.append("pop=").append(minPopulation).append("..").append(maxPopulation).append(' ');
+        if(name != null)
+            text.append("name=").append(name).append(' ');
+        if(prefix != null)
+            text.append("prefix=").append(prefix).append(' ');
+        if(regex != null)
+            text.append("regex=").append(regex.pattern()).append(' ');
+        return text.append("order=").append(order).append(" limit=").append(limit).toString();
+    }
+}
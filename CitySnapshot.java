@@ -0,0 +1,224 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ *	CitySnapshot - Binary snapshot of a loaded CityTable and its built SortIndexes,
+ *	written next to the data file (usPopData2017.txt.snap) so later runs can skip
+ *	parsing the text.
+ *
+ *	The file is a fixed header followed by the body:
+ *		int MAGIC, int VERSION, long source length, long source modified time,
+ *		long CRC32 of the body
+ *	and then the table's columns and dictionaries (CityTable.writeTo) and its built
+ *	indexes (SortIndexes.writeTo). Ints are big-endian.
+ *
+ *	A snapshot is only used if its magic, version and checksum are right and the data
+ *	file has the same length and modified time it had when the snapshot was written;
+ *	otherwise read returns null and the caller re-parses the text. Snapshots are read
+ *	through a memory-mapped buffer and written to a temp file that is then renamed
+ *	over the old snapshot, so a reader never sees a half-written one. Read off the
+ *	heap, the table's rows stay in the mapped file (see OffHeapCityStore); renaming a
+ *	new snapshot over it leaves the old mapping readable.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class CitySnapshot
+{
+    private static final int MAGIC = 0x504F5053;   // "POPS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8;
+    private static final int CHUNK = 64 * 1024;     // bytes staged per bulk write
+
+    private final CityTable table;
+    private final SortIndexes indexes;
+
+    private CitySnapshot(CityTable table, SortIndexes indexes)
+    {
+        this.table = table;
+        this.indexes = indexes;
+    }
+
+    /**	Accessor methods */
+    public CityTable getTable() { return table; }
+    public SortIndexes getIndexes() { return indexes; }
+
+    /**
+     *  @param dataFile name of the text data file
+     *  @return         name of its snapshot file
+     */
+    public static String snapshotFile(String dataFile)
+    {
+        return dataFile + ".snap";
+    }
+
+    /**
+     *  Reads the snapshot of a data file, if there is a current one.
+     *
+     *  @param dataFile name of the text data file
+     *  @param lazy     true to build indexes missing from the snapshot on first use
+     *  @param algorithm the sort to build missing indexes with
+     *  @param offHeap  true to read the table's rows in place from the mapped file
+     *  @return         the snapshot, or null if it is missing, stale, damaged, too large
+     *                  to map or can't be read
+     */
+    public static CitySnapshot read(String dataFile, boolean lazy, SortAlgorithm algorithm, boolean offHeap)
+    {
+        long start = Metrics.start();
+        File source = new File(dataFile);
+        File snap = new File(snapshotFile(dataFile));
+        if(!snap.isFile() || snap.length() < HEADER_BYTES)
+            return null;
+
+        ByteBuffer data;
+        try
+        {
+            data = FileUtils.mapToRead(snap.getPath(), 0, snap.length());
+        }
+        catch(UncheckedIOException e)
+        {
+            System.err.println("ERROR: Cannot read "+snap.getPath()+", re-reading "+dataFile);
+            return null;
+        }
+        if(data.getInt() != MAGIC || data.getInt() != VERSION
+            || data.getLong() != source.length() || data.getLong() != source.lastModified())
+            return null;
+
+        long checksum = data.getLong();
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+        if(crc.getValue() != checksum)
+        {
+            System.err.println("ERROR: "+snap.getPath()+" is damaged, re-reading "+dataFile);
+            return null;
+        }
+
+        CityTable table = CityTable.readFrom(data, offHeap);
+        SortIndexes indexes = SortIndexes.readFrom(data, table, lazy, algorithm);
+        Metrics.stop(Metrics.Phase.SNAPSHOT, start);
+        return new CitySnapshot(table, indexes);
+    }
+
+    /**
+     *  Writes a snapshot of a table and its built indexes next to the data file. A
+     *  snapshot is only a cache, so failing to write one is reported but not fatal.
+     *
+     *  @param dataFile name of the text data file the table was loaded from
+     *  @param table    the loaded table
+     *  @param indexes  the table's indexes; only the built ones are saved
+     */
+    public static void write(String dataFile, CityTable table, SortIndexes indexes)
+    {
+        File source = new File(dataFile);
+        File snap = new File(snapshotFile(dataFile));
+        File temp = new File(snap.getPath() + ".tmp");
+
+        try
+        {
+            CRC32 crc = new CRC32();
+            try(FileOutputStream file = new FileOutputStream(temp))
+            {
+                DataOutputStream header = new DataOutputStream(file);
+                header.writeInt(MAGIC);
+                header.writeInt(VERSION);
+                header.writeLong(source.length());
+                header.writeLong(source.lastModified());
+                header.writeLong(0);   // checksum, filled in below
+
+                DataOutputStream body = new DataOutputStream(new BufferedOutputStream(
+                                            new CheckedOutputStream(file, crc), CHUNK));
+                table.writeTo(body);
+                indexes.writeTo(body);
+                body.flush();
+            }
+
+            try(RandomAccessFile file = new RandomAccessFile(temp, "rw"))
+            {
+                file.seek(HEADER_BYTES - 8);
+                file.writeLong(crc.getValue());
+            }
+
+            Files.move(temp.toPath(), snap.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch(IOException e)
+        {
+            System.err.println("ERROR: Cannot write snapshot "+snap.getPath()+": "+e.getMessage());
+            temp.delete();
+        }
+    }
+
+    /**
+     *  Writes the first length ints of an array, staging them through a byte buffer
+     *  instead of writing one int at a time.
+     *
+     *  @param out      the stream to write to
+     *  @param values   the ints to write
+     *  @param length   how many of them to write
+     */
+    public static void writeInts(DataOutputStream out, int[] values, int length) throws IOException
+    {
+        ByteBuffer chunk = ByteBuffer.allocate(CHUNK);
+        IntBuffer ints = chunk.asIntBuffer();
+        for(int i=0; i<length; i+=ints.capacity())
+        {
+            int n = Math.min(ints.capacity(), length-i);
+            ints.clear();
+            ints.put(values, i, n);
+            out.write(chunk.array(), 0, n*4);
+        }
+    }
+
+    /**
+     *  Reads ints written by writeInts, advancing the buffer past them.
+     *
+     *  @param in       the buffer to read from
+     *  @param length   how many ints to read
+     *  @return         the ints
+     */
+    public static int[] readInts(ByteBuffer in, int length)
+    {
+        int[] values = new int[length];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + length*4);
+        return values;
+    }
+
+    /**
+     *  Writes a string as its UTF-8 length and bytes.
+     *
+     *  @param out      the stream to write to
+     *  @param value    the string to write
+     */
+    public static void writeString(DataOutputStream out, String value) throws IOException
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     *  Reads a string written by writeString, advancing the buffer past it.
+     *
+     *  @param in       the buffer to read from
+     *  @return         the string
+     */
+    public static String readString(ByteBuffer in)
+    {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
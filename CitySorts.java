@@ -0,0 +1,191 @@
+/**
+ *	CitySorts - Sorting routines over an int[] permutation of CityTable row ids. The
+ *	rows themselves are never moved; only the row ids in the permutation are.
+ *
+ *	All sorts order the rows ascending according to the RowComparator they are given.
+ *	Use RowComparator.reversed() or a descending SortOrder for the opposite order.
+ *	Their comparisons, swaps and merges are counted in Metrics.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class CitySorts
+{
+    /**
+     *  Builds the identity permutation 0, 1, ..., size-1.
+     *
+     *  @param size     number of rows
+     *  @return         the row ids in table order
+     */
+    public static int[] identity(int size)
+    {
+        int[] rows = new int[size];
+        for(int i=0; i<size; i++)
+            rows[i] = i;
+        return rows;
+    }
+
+    /**
+     *  Sorts the rows using the selection sort method. Each pass finds the largest
+     *  remaining row and swaps it to the end.
+     *
+     *  @param rows     the row ids to sort
+     *  @param cmp      the row order
+     */
+    public static void selectionSort(int[] rows, RowComparator cmp)
+    {
+        long compares = 0;
+        for(int outer = rows.length; outer>1; outer--)
+        {
+            int innerMax = 0;
+            for(int inner = 1; inner < outer; inner++)
+            {
+                compares++;
+                if(cmp.compare(rows[inner], rows[innerMax]) > 0)
+                    innerMax = inner;
+            }
+
+            swap(rows, innerMax, outer-1);
+        }
+        Metrics.countComparisons(compares);
+        Metrics.countSwaps(Math.max(rows.length-1, 0));
+    }
+
+    /**
+     *  Sorts the rows between start and end (inclusive) using the insertion sort method.
+     *
+     *  @param rows     the row ids to sort
+     *  @param start    first position to sort
+     *  @param end      last position to sort
+     *  @param cmp      the row order
+     */
+    public static void insertionSort(int[] rows, int start, int end, RowComparator cmp)
+    {
+        long compares = 0;
+        for(int outer = start+1; outer<=end; outer++)
+        {
+            int tempRow = rows[outer];
+            int count = outer;
+
+            while(count>start)
+            {
+                compares++;
+                if(cmp.compare(tempRow, rows[count-1]) >= 0)
+                    break;
+                rows[count] = rows[count-1];
+                count--;
+            }
+
+            rows[count] = tempRow;
+        }
+        Metrics.countComparisons(compares);
+    }
+
+    /**
+     *  Sorts all the rows using the merge sort method. Stable, so rows that compare
+     *  equal keep their original relative order.
+     *
+     *  @param rows     the row ids to sort
+     *  @param cmp      the row order
+     */
+    public static void mergeSort(int[] rows, RowComparator cmp)
+    {
+        mergeSort(rows, new int[rows.length], 0, rows.length-1, cmp);
+    }
+
+    /**
+     *  Recursive method to sort the rows. Compares the elements at the end and start positions.
+     *  Then decides whether they need to be swaped, or sorted and merged again.
+     *
+     *  @param rows     the row ids to sort
+     *  @param temp     temp array that stores row ids(later copied back into rows)
+     *  @param start    position to start merge
+     *  @param end      position to end merge
+     *  @param cmp      the row order
+     */
+    public static void mergeSort(int[] rows, int[] temp, int start, int end, RowComparator cmp)
+    {
+        if(end - start < 2)
+        {
+            if(end > start)
+            {
+                Metrics.countComparisons(1);
+                if(cmp.compare(rows[end], rows[start]) < 0)
+                {
+                    swap(rows, start, end);
+                    Metrics.countSwaps(1);
+                }
+            }
+        }
+        else
+        {
+            int middle = (start+end)/2;
+            mergeSort(rows, temp, start, middle, cmp);
+            mergeSort(rows, temp, middle+1, end, cmp);
+            merge(rows, temp, start, middle, end, cmp);
+        }
+    }
+
+    /**
+     *  Merges the sorted runs start..middle and middle+1..end.
+     *
+     *  @param rows     the row ids to sort
+     *  @param temp     temp array that stores row ids(later copied back into rows)
+     *  @param start    position to start merge
+     *  @param middle   middle position -> between start and end
+     *  @param end      position to end merge
+     *  @param cmp      the row order
+     */
+    public static void merge(int[] rows, int[] temp, int start, int middle, int end, RowComparator cmp)
+    {
+        int i = start;
+        int j = middle+1;
+        int k = start;
+        long compares = 0;
+
+        while(i<=middle && j<=end)
+        {
+            compares++;
+            if(cmp.compare(rows[j], rows[i]) < 0)
+                temp[k++] = rows[j++];
+            else
+                temp[k++] = rows[i++];
+        }
+
+        while(i<=middle)
+            temp[k++] = rows[i++];
+        while(j<=end)
+            temp[k++] = rows[j++];
+
+        System.arraycopy(temp, start, rows, start, end-start+1);
+        Metrics.countComparisons(compares);
+        Metrics.countMerge();
+    }
+
+    /**
+     *  Reverses the rows in place.
+     *
+     *  @param rows     the row ids to reverse
+     */
+    public static void reverse(int[] rows)
+    {
+        for(int i=0, j=rows.length-1; i<j; i++, j--)
+            swap(rows, i, j);
+        Metrics.countSwaps(rows.length/2);
+    }
+
+    /**
+     *  Takes the row ids at positions a and b and swaps them. Not counted in Metrics;
+     *  the sorts count their swaps once per call.
+     *
+     *  @param rows     the row ids
+     *  @param a        index of first element to swap
+     *  @param b        index of second element to swap
+     */
+    public static void swap(int[] rows, int a, int b)
+    {
+        int temp = rows[a];
+        rows[a] = rows[b];
+        rows[b] = temp;
+    }
+}
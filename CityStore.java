@@ -0,0 +1,80 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ *	CityStore - The row columns behind a CityTable: population, state id and
+ *	designation id as fixed-width ints, and the city names packed back to back as
+ *	UTF-8 bytes with an offsets column marking where each name starts.
+ *
+ *	HeapCityStore keeps the columns in Java arrays and can grow; OffHeapCityStore
+ *	keeps them read-only in a direct or memory-mapped ByteBuffer. CityTable reads
+ *	every row through this interface, so sorts and queries run the same over both.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public interface CityStore
+{
+    /** @return the number of rows */
+    int size();
+
+    /** @return the population of a row */
+    int population(int row);
+
+    /** @return the state dictionary id of a row */
+    int stateId(int row);
+
+    /** @return the designation dictionary id of a row */
+    int typeId(int row);
+
+    /**
+     *  @param row      a row id, or size() for the end of the last name
+     *  @return         the offset of the row's name in the packed names
+     */
+    int nameStart(int row);
+
+    /**
+     *  Copies the packed name bytes of a range of rows.
+     *
+     *  @param fromRow  the first row
+     *  @param toRow    one past the last row
+     *  @param dst      the array to copy into
+     *  @param at       where in dst to copy the first byte
+     */
+    void copyNames(int fromRow, int toRow, byte[] dst, int at);
+
+    /**
+     *  Decodes the name of a row into a new String.
+     *
+     *  @param row      the row id
+     *  @return         the city name
+     */
+    String name(int row);
+
+    /**
+     *  Appends the name of a row to a buffer, a character at a time without creating a
+     *  String when the name is plain ASCII.
+     *
+     *  @param row      the row id
+     *  @param buffer   the buffer to append to
+     */
+    void appendName(int row, StringBuilder buffer);
+
+    /**
+     *  Compares the UTF-8 bytes of two rows' names.
+     *
+     *  @param a        the first row id
+     *  @param b        the second row id
+     *  @return         negative, zero or positive as name a is before, equal to or after name b
+     */
+    int compareNames(int a, int b);
+
+    /**
+     *  Writes the columns in the layout CitySnapshot stores them in: population,
+     *  state ids, designation ids, the size()+1 name offsets, then the name bytes,
+     *  all big-endian.
+     *
+     *  @param out      the stream to write to
+     */
+    void writeTo(DataOutputStream out) throws IOException;
+}
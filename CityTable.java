@@ -0,0 +1,562 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ *	CityTable - Columnar store for the city database. Each column is held in its own
+ *	primitive column of a CityStore and a row is identified by its index into those
+ *	columns.
+ *
+ *	Population is stored as an int column. State and designation are dictionary
+ *	encoded with a StringDictionary, so each row only holds an int id into a small
+ *	list of distinct values. City names are packed as UTF-8 bytes into one shared
+ *	byte region, with an offsets column marking where each name starts.
+ *
+ *	A table is filled in a HeapCityStore. A frozen table can be moved off the heap
+ *	into an OffHeapCityStore with offHeap, or read off-heap straight from a mapped
+ *	snapshot; only the dictionaries and derived columns stay on the heap.
+ *
+ *	Two int columns are derived from the names: order-preserving name codes, which
+ *	make comparing two names comparing two ints, and case-folded name keys, which
+ *	make a case-insensitive name match an int comparison. The codes are read off the
+ *	NAME_ASCENDING index in one pass once SortIndexes has built it, and patched along
+ *	with it; until then names are compared byte by byte. Both columns are dropped
+ *	when rows are added or removed.
+ *
+ *	Sorting never moves row data around; callers sort an int[] permutation of row
+ *	ids instead.
+ *
+ *	A table is filled once and then frozen, after which adding rows throws, so a
+ *	frozen table can be read from any number of threads.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class CityTable
+{
+    private CityStore store;               // the row columns
+    private StringDictionary states;       // distinct state names
+    private StringDictionary types;        // distinct designations
+    private volatile int[] nameCode;       // rank of each row's name in name order, null until needed
+    private int[] nameOrder;               // row ids in name order to build the codes from, or null
+    private volatile int[] nameKey;        // id of each row's case-folded name, null until needed
+    private StringDictionary nameKeys;     // distinct case-folded names, null until needed
+    private boolean frozen;                // true once rows can no longer be added
+
+    public CityTable()
+    {
+        this(new HeapCityStore(), new StringDictionary(), new StringDictionary());
+    }
+
+    /** Creates a table over already filled columns and dictionaries */
+    private CityTable(CityStore store, StringDictionary states, StringDictionary types)
+    {
+        this.store = store;
+        this.states = states;
+        this.types = types;
+    }
+
+    /**
+     *  Adds a row to the end of the table.
+     *
+     *  @param state    state name
+     *  @param name     city name
+     *  @param type     city designation (city, town, ...)
+     *  @param pop      population
+     *  @return         the row id of the new row
+     */
+    public int add(String state, String name, String type, int pop)
+    {
+        int row = heap().add(pop, states.encode(state), types.encode(type), name.getBytes(StandardCharsets.UTF_8));
+        namesChanged();
+        return row;
+    }
+
+    /**
+     *  Adds a row whose city name is still raw UTF-8 bytes in a buffer, such as a mapped
+     *  data file. The name bytes are copied straight into the name column without
+     *  creating a String.
+     *
+     *  @param state    state name
+     *  @param source   buffer holding the city name
+     *  @param nameFrom position of the first byte of the name in source
+     *  @param nameTo   position one past the last byte of the name in source
+     *  @param type     city designation (city, town, ...)
+     *  @param pop      population
+     *  @return         the row id of the new row
+     */
+    public int add(String state, ByteBuffer source, int nameFrom, int nameTo, String type, int pop)
+    {
+        int row = heap().add(pop, states.encode(state), types.encode(type), source, nameFrom, nameTo);
+        namesChanged();
+        return row;
+    }
+
+    /**
+     *  Appends every row of another table to the end of this one, in order. The other
+     *  table's state and designation ids are translated into this table's dictionaries,
+     *  and its columns are copied in bulk when it is on the heap.
+     *
+     *  @param other    the table whose rows to append
+     */
+    public void addAll(CityTable other)
+    {
+        HeapCityStore rows = heap();
+        int[] stateMap = new int[other.states.size()];
+        for(int id=0; id<stateMap.length; id++)
+            stateMap[id] = states.encode(other.states.get(id));
+        int[] typeMap = new int[other.types.size()];
+        for(int id=0; id<typeMap.length; id++)
+            typeMap[id] = types.encode(other.types.get(id));
+        rows.addAll(other.store, stateMap, typeMap);
+        namesChanged();
+    }
+
+    /**
+     *  Copies the table into a new table on the heap that is not frozen, so a changed
+     *  version can be built while this one stays in use.
+     *
+     *  @return         the copy
+     */
+    public CityTable copy()
+    {
+        CityTable copy = new CityTable();
+        copy.store = HeapCityStore.copyOf(store);
+        for(int id=0; id<states.size(); id++)
+            copy.states.encode(states.get(id));
+        for(int id=0; id<types.size(); id++)
+            copy.types.encode(types.get(id));
+        return copy;
+    }
+
+    /**
+     *  Copies the table's rows into direct memory outside the heap. The copy shares
+     *  this table's dictionaries and any name codes and keys already built, so this
+     *  table must be frozen.
+     *
+     *  @return         the frozen off-heap copy
+     *  @throws IllegalStateException if this table is not frozen
+     */
+    public CityTable offHeap()
+    {
+        if(!frozen)
+            throw new IllegalStateException("only a frozen CityTable can be moved off the heap");
+        CityTable copy = new CityTable(OffHeapCityStore.copyOf(store), states, types);
+        copy.frozen = true;
+        copy.nameCode = nameCode;
+        synchronized(this)
+        {
+            copy.nameOrder = nameOrder;
+            copy.nameKey = nameKey;
+            copy.nameKeys = nameKeys;
+        }
+        return copy;
+    }
+
+    /** @return true if the rows are held outside the heap */
+    public boolean isOffHeap() { return store instanceof OffHeapCityStore; }
+
+    /**
+     *  Changes the population of a row.
+     *
+     *  @param row      the row id
+     *  @param pop      the new population
+     */
+    public void setPopulation(int row, int pop)
+    {
+        heap().setPopulation(row, pop);
+    }
+
+    /**
+     *  Changes the designation of a row.
+     *
+     *  @param row      the row id
+     *  @param type     the new designation (city, town, ...)
+     */
+    public void setCityType(int row, String type)
+    {
+        heap().setTypeId(row, types.encode(type));
+    }
+
+    /**
+     *  Removes rows from the table, moving the rows after each removed one down so the
+     *  columns stay packed. Rows keep their relative order.
+     *
+     *  @param removed  true for each row id to remove
+     *  @return         the new id of each old row id, or -1 for a removed row
+     */
+    public int[] removeRows(boolean[] removed)
+    {
+        int[] remap = heap().removeRows(removed);
+        namesChanged();
+        return remap;
+    }
+
+    /** Drops the columns derived from the names, after the names have changed */
+    private void namesChanged()
+    {
+        nameCode = null;
+        nameOrder = null;
+        nameKey = null;
+        nameKeys = null;
+    }
+
+    /** Stops any more rows being added; the table is read-only from then on */
+    public void freeze() { frozen = true; }
+
+    /** @return true if the table is read-only */
+    public boolean isFrozen() { return frozen; }
+
+    /**
+     *  @return         the heap store, for changing the rows
+     *  @throws IllegalStateException if the table is frozen
+     */
+    private HeapCityStore heap()
+    {
+        if(frozen)
+            throw new IllegalStateException("cannot change a frozen CityTable");
+        return (HeapCityStore)store;
+    }
+
+    /**	Accessor methods */
+    public int size() { return store.size(); }
+    public int getPopulation(int row) { return store.population(row); }
+    public int getStateId(int row) { return store.stateId(row); }
+    public int getTypeId(int row) { return store.typeId(row); }
+    public String getStateName(int row) { return states.get(store.stateId(row)); }
+    public String getCityType(int row) { return types.get(store.typeId(row)); }
+    public int getStateKey(int row) { return states.foldedIds()[store.stateId(row)]; }
+    public int numStates() { return states.size(); }
+    public String stateName(int id) { return states.get(id); }
+    public int numTypes() { return types.size(); }
+    public String typeName(int id) { return types.get(id); }
+
+    /**
+     *  Decodes the name of a city. This allocates a new String, so comparisons should
+     *  use compareNames instead.
+     *
+     *  @param row      the row id
+     *  @return         the city name of the row
+     */
+    public String getCityName(int row)
+    {
+        return store.name(row);
+    }
+
+    /**
+     *  @param row      the row id
+     *  @return         a copy of the UTF-8 bytes of the row's city name
+     */
+    public byte[] getCityNameBytes(int row)
+    {
+        byte[] bytes = new byte[store.nameStart(row + 1) - store.nameStart(row)];
+        store.copyNames(row, row + 1, bytes, 0);
+        return bytes;
+    }
+
+    /**
+     *  Appends the name of a city to a buffer. Plain ASCII names are copied a character
+     *  at a time without creating a String.
+     *
+     *  @param row      the row id
+     *  @param buffer   the buffer to append to
+     */
+    public void appendCityName(int row, StringBuilder buffer)
+    {
+        store.appendName(row, buffer);
+    }
+
+    /**
+     *  Compares the city names of two rows: by their name codes once those are built,
+     *  and byte by byte, without decoding them, before that.
+     *
+     *  @param a        the first row id
+     *  @param b        the second row id
+     *  @return         negative, zero or positive as name a is before, equal to or after name b
+     */
+    public int compareNames(int a, int b)
+    {
+        int[] codes = nameCode;
+        if(codes != null)
+            return Integer.compare(codes[a], codes[b]);
+        return compareNameBytes(a, b);
+    }
+
+    /** Compares the UTF-8 bytes of two rows' city names */
+    private int compareNameBytes(int a, int b)
+    {
+        return store.compareNames(a, b);
+    }
+
+    /**
+     *  Compares two rows the same way City.compareTo compares two cities: by
+     *  population, then state name, then city name.
+     *
+     *  @param a        the first row id
+     *  @param b        the second row id
+     *  @return         negative, zero or positive as row a is before, equal to or after row b
+     */
+    public int compareRows(int a, int b)
+    {
+        int popA = store.population(a);
+        int popB = store.population(b);
+        if(popA != popB)
+            return Integer.compare(popA, popB);
+        int stateA = store.stateId(a);
+        int stateB = store.stateId(b);
+        if(stateA != stateB)
+        {
+            int[] rank = states.ranks();
+            return Integer.compare(rank[stateA], rank[stateB]);
+        }
+        else
+            return compareNames(a, b);
+    }
+
+    /**
+     *  Gives each row an order-preserving code for its city name: rows with equal
+     *  names share a code, and a smaller code means an earlier name. Built the first
+     *  time it is asked for, and kept until a row is added or removed; from then on
+     *  compareNames compares codes. Building them is one pass over the name order
+     *  given to setNameOrder, or a whole name sort if there is none, so callers that
+     *  only need them to go faster should check hasNameCodes first.
+     *
+     *  @return         the name code of each row; must not be modified
+     */
+    public int[] nameCodes()
+    {
+        int[] codes = nameCode;
+        return codes != null ? codes : buildNameCodes();
+    }
+
+    /**
+     *  @return true if nameCodes is at most one pass over the rows: the codes are
+     *          built, or there is a name order to build them from
+     */
+    public synchronized boolean hasNameCodes()
+    {
+        return nameCode != null || nameOrder != null;
+    }
+
+    /**
+     *  Gives the table its rows in name order, such as a built NAME_ASCENDING index,
+     *  so the name codes can be built from it without sorting. Rows with equal names
+     *  may be in any order.
+     *
+     *  @param rows     every row id in ascending name order; must not be modified
+     */
+    public synchronized void setNameOrder(int[] rows)
+    {
+        if(nameCode == null && rows.length == size())
+            nameOrder = rows;
+    }
+
+    /** Builds the name codes the first time they are asked for */
+    private synchronized int[] buildNameCodes()
+    {
+        if(nameCode == null)
+        {
+            int[] rows = nameOrder;
+            if(rows == null)
+            {
+                rows = CitySorts.identity(size());
+                new ParallelMergeSort().sort(rows, this::compareNameBytes);
+            }
+
+            int[] codes = new int[rows.length];
+            int code = 0;
+            for(int i=0; i<rows.length; i++)
+            {
+                if(i > 0 && compareNameBytes(rows[i-1], rows[i]) != 0)
+                    code++;
+                codes[rows[i]] = code;
+            }
+            nameCode = codes;
+            nameOrder = null;
+        }
+        return nameCode;
+    }
+
+    /**
+     *  Patches the name codes of a table changed by CityDelta from the old table's,
+     *  given its patched name order. Two neighbouring rows that were both in the old
+     *  table keep whether their old codes were equal; only the names of added rows are
+     *  compared. If the old table had no codes, the name order is kept to build them
+     *  from instead.
+     *
+     *  @param old      the table before the change
+     *  @param remap    the new id of each row id before the removal, or -1 if removed;
+     *                  ids from old's size on are the added rows
+     *  @param rows     every row id of this table in ascending name order
+     */
+    public synchronized void patchNameCodes(CityTable old, int[] remap, int[] rows)
+    {
+        int[] oldCodes = old.nameCode;
+        if(oldCodes == null || rows.length != size())
+        {
+            setNameOrder(rows);
+            return;
+        }
+
+        int[] oldRow = new int[size()];
+        Arrays.fill(oldRow, -1);
+        for(int row=0; row<oldCodes.length; row++)
+        {
+            if(remap[row] >= 0)
+                oldRow[remap[row]] = row;
+        }
+
+        int[] codes = new int[rows.length];
+        int code = 0;
+        for(int i=1; i<rows.length; i++)
+        {
+            int a = oldRow[rows[i-1]];
+            int b = oldRow[rows[i]];
+            boolean same = a >= 0 && b >= 0 ? oldCodes[a] == oldCodes[b]
+                                             : compareNameBytes(rows[i-1], rows[i]) == 0;
+            if(!same)
+                code++;
+            codes[rows[i]] = code;
+        }
+        nameCode = codes;
+        nameOrder = null;
+    }
+
+    /**
+     *  Gives each row the id of its case-folded city name (CityLookup.fold), so rows
+     *  whose names differ only in case share a key. Built the first time it is asked
+     *  for, and kept until a row is added or removed.
+     *
+     *  @return         the name key of each row; must not be modified
+     */
+    public int[] nameKeys()
+    {
+        int[] keys = nameKey;
+        return keys != null ? keys : buildNameKeys();
+    }
+
+    /** Builds the name keys the first time they are asked for */
+    private synchronized int[] buildNameKeys()
+    {
+        if(nameKey == null)
+        {
+            StringDictionary dictionary = new StringDictionary();
+            int[] keys = new int[size()];
+            for(int row=0; row<keys.length; row++)
+                keys[row] = dictionary.encode(CityLookup.fold(getCityName(row)));
+            nameKeys = dictionary;
+            nameKey = keys;
+        }
+        return nameKey;
+    }
+
+    /**
+     *  @return         the distinct case-folded city names, indexed by name key; must
+     *                  not be modified
+     */
+    public synchronized StringDictionary nameKeyDictionary()
+    {
+        buildNameKeys();
+        return nameKeys;
+    }
+
+    /**
+     *  @param key      a case-folded city name, as made by CityLookup.fold
+     *  @return         the name key of that name, or -1 if no row has it
+     */
+    public int findNameKey(String key)
+    {
+        return nameKeyDictionary().find(key);
+    }
+
+    /**
+     *  @param key      a case-folded state name, as made by CityLookup.fold
+     *  @return         the key getStateKey gives rows in that state, or -1 if no row is
+     */
+    public int findStateKey(String key)
+    {
+        return states.findFolded(key);
+    }
+
+    /**
+     *  Ranks the state dictionary by state name.
+     *
+     *  @return         the rank of each state id in state name order; must not be modified
+     */
+    public int[] stateRanks()
+    {
+        return states.ranks();
+    }
+
+    /**
+     *  Writes the table's rows and dictionaries for CitySnapshot: the row count, the
+     *  state and designation dictionaries, then each column.
+     *
+     *  @param out      the stream to write to
+     */
+    public void writeTo(DataOutputStream out) throws IOException
+    {
+        out.writeInt(size());
+        out.writeInt(states.size());
+        for(int id=0; id<states.size(); id++)
+            CitySnapshot.writeString(out, states.get(id));
+        out.writeInt(types.size());
+        for(int id=0; id<types.size(); id++)
+            CitySnapshot.writeString(out, types.get(id));
+
+        store.writeTo(out);
+    }
+
+    /**
+     *  Reads a table written by writeTo, advancing the buffer past it. Off the heap,
+     *  the rows are read in place from the buffer, which must then stay unchanged for
+     *  as long as the table is used; a mapped snapshot file does.
+     *
+     *  @param in       the buffer to read from
+     *  @param offHeap  true to leave the rows in the buffer, as a frozen table
+     *  @return         the table
+     */
+    public static CityTable readFrom(ByteBuffer in, boolean offHeap)
+    {
+        int rows = in.getInt();
+        StringDictionary states = new StringDictionary();
+        int numStates = in.getInt();
+        for(int id=0; id<numStates; id++)
+            states.encode(CitySnapshot.readString(in));
+        StringDictionary types = new StringDictionary();
+        int numTypes = in.getInt();
+        for(int id=0; id<numTypes; id++)
+            types.encode(CitySnapshot.readString(in));
+
+        if(!offHeap)
+            return new CityTable(HeapCityStore.readFrom(in, rows), states, types);
+        CityTable table = new CityTable(OffHeapCityStore.wrap(in, rows), states, types);
+        table.frozen = true;
+        return table;
+    }
+
+    /**
+     *  Builds a City object holding a copy of one row.
+     *
+     *  @param row      the row id
+     *  @return         the City for that row
+     */
+    public City getCity(int row)
+    {
+        return new City(getCityName(row), getStateName(row), getCityType(row), getPopulation(row));
+    }
+
+    /**
+     *  Formats a row the same way City.toString formats a city.
+     *
+     *  @param row      the row id
+     *  @return         the formatted row
+     */
+    public String toString(int row)
+    {
+        return String.format("%-22s %-22s %-12s %,12d", getStateName(row), getCityName(row),
+                                getCityType(row), getPopulation(row));
+    }
+}
@@ -0,0 +1,153 @@
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ *	DataFileWatcher - Watches the data file with a WatchService and reloads the
+ *	dataset whenever the file changes.
+ *
+ *	The watch runs on a background daemon thread. When the file is created or
+ *	modified, the watcher waits until no more changes arrive for QUIET_MILLIS, so a
+ *	file still being written is not read half way, then builds a new CityDataset on
+ *	the same thread and swaps it into the shared AtomicReference. Queries already
+ *	running keep the dataset they started with, and later ones see the new one.
+ *	Each reload reports how many rows it read and how long it took. A reload that
+ *	fails, such as on a file that is being replaced, is reported and the current
+ *	dataset kept, and the watch goes on.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class DataFileWatcher implements Runnable
+{
+    private static final long QUIET_MILLIS = 500;   // how long the file must be unchanged before a reload
+
+    private final Path file;                               // the data file
+    private final Supplier<CityDataset> loader;            // loads a new dataset from the file
+    private final AtomicReference<CityDataset> dataset;    // where the new dataset is swapped in
+    private final WatchService watcher;
+    private int reloads;
+
+    /**
+     *  @param dataFile     name of the data file to watch
+     *  @param loader       loads a new dataset from the file
+     *  @param dataset      the current dataset, replaced on every reload
+     *  @throws IOException if the file's directory cannot be watched
+     */
+    public DataFileWatcher(String dataFile, Supplier<CityDataset> loader,
+                            AtomicReference<CityDataset> dataset) throws IOException
+    {
+        file = Paths.get(dataFile).toAbsolutePath();
+        this.loader = loader;
+        this.dataset = dataset;
+        watcher = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                                    StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    /** Starts watching on a background daemon thread */
+    public void start()
+    {
+        Thread thread = new Thread(this, "data-file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Stops watching; a reload in progress still finishes */
+    public void stop()
+    {
+        try
+        {
+            watcher.close();
+        }
+        catch(IOException e)
+        {
+            System.err.println("ERROR: Cannot stop watching "+file+": "+e.getMessage());
+        }
+    }
+
+    /** @return the number of reloads done so far */
+    public synchronized int getReloads() { return reloads; }
+
+    /** Waits for changes to the data file and reloads after each one, until stopped */
+    public void run()
+    {
+        try
+        {
+            while(true)
+            {
+                if(!changed(watcher.take()))
+                    continue;
+
+                WatchKey next = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+                while(next != null)
+                {
+                    changed(next);
+                    next = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                reload();
+            }
+        }
+        catch(InterruptedException | ClosedWatchServiceException e)
+        {
+            // stopped
+        }
+    }
+
+    /**
+     *  Reads the events of a watch key and re-arms it.
+     *
+     *  @param key      a signalled watch key
+     *  @return         true if any of the events is for the data file
+     */
+    private boolean changed(WatchKey key)
+    {
+        boolean changed = false;
+        for(WatchEvent<?> event : key.pollEvents())
+        {
+            Object name = event.context();
+            if(event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(name))
+                changed = true;
+        }
+        key.reset();
+        return changed;
+    }
+
+    /** Loads a new dataset from the file, swaps it in and reports the load */
+    private void reload()
+    {
+        if(!Files.isReadable(file))
+        {
+            System.err.println("ERROR: "+file.getFileName()+" changed but cannot be read; keeping the current data");
+            return;
+        }
+        long start = System.nanoTime();
+        CityDataset loaded;
+        try
+        {
+            loaded = loader.get();
+        }
+        catch(RuntimeException | InternalError e)   // InternalError: the mapped file shrank while being read
+        {
+            System.err.println("ERROR: Cannot reload "+file.getFileName()+": "+e.getMessage()+"; keeping the current data");
+            return;
+        }
+        long millis = (System.nanoTime() - start) / 1000000;
+        dataset.set(loaded);
+        synchronized(this)
+        {
+            reloads++;
+        }
+        System.out.println("Reloaded "+loaded.size()+" cities from "+file.getFileName()+" in "+millis+" milliseconds");
+    }
+}
@@ -0,0 +1,308 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ *	ExternalSort - Sorts a data file that may be too large to load into one of the
+ *	SortOrders, in memory bounded by the run size rather than the file size, and
+ *	writes the result as a data file in the same tab-separated format.
+ *
+ *	The file is split by FileUtils.splitToRead into runs of about runBytes bytes that
+ *	start on line boundaries. Each run is mapped, parsed by CityLoader into its own
+ *	CityTable, sorted with a SortStrategy, and spilled to a temp file through
+ *	FileUtils.openToWriteData as binary records:
+ *		int population, UTF state, UTF designation, int name length, name bytes
+ *	The runs are then merged through a heap holding the next record of each run,
+ *	MAX_FAN_IN runs at a time; if there are more runs than that, they are first
+ *	merged into fewer, longer runs. The last merge streams straight to the output.
+ *
+ *	Only one run's table is in memory at a time, plus one record and one buffer per
+ *	run being merged. Ties between runs go to the earlier run in an ascending order
+ *	and to the later run in a descending one, as SortOrder.comparator orders tied
+ *	rows, so the output is in the same order as the in-memory index of the whole file.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class ExternalSort
+{
+    public static final long DEFAULT_RUN_BYTES = 64L << 20;   // input bytes sorted in memory at once
+    public static final long MIN_RUN_BYTES = 1L << 16;        // smallest run
+    public static final long MAX_RUN_BYTES = 1L << 30;        // largest run, so it can be mapped
+    public static final int MAX_FAN_IN = 64;                   // most runs merged at once
+
+    private final SortOrder order;
+    private final SortStrategy strategy;
+    private final long runBytes;
+    private int runs;   // runs spilled by the last sort, merged runs included
+
+    /**
+     *  @param order        the order to sort into
+     *  @param algorithm    the sort for each run in memory
+     *  @param runBytes     about how many bytes of the input to sort in memory at once
+     */
+    public ExternalSort(SortOrder order, SortAlgorithm algorithm, long runBytes)
+    {
+        this.order = order;
+        strategy = algorithm.create();
+        this.runBytes = Math.max(MIN_RUN_BYTES, Math.min(runBytes, MAX_RUN_BYTES));
+    }
+
+    /** @return the number of runs spilled by the last sort, merged runs included */
+    public int getRuns() { return runs; }
+
+    /**
+     *  Sorts a data file into a new data file. The temp files are deleted before this
+     *  returns, whether or not it succeeds.
+     *
+     *  @param inputFile    name of the data file to sort
+     *  @param outputFile   name of the file to write the sorted cities to
+     *  @return             the number of cities written
+     *  @throws IOException if a temp file or the output can't be written
+     */
+    public int sort(String inputFile, String outputFile) throws IOException
+    {
+        runs = 0;
+        List<File> files = new ArrayList<File>();
+        try
+        {
+            long size = new File(inputFile).length();
+            int parts = (int)Math.max(1, (size + runBytes - 1) / runBytes);
+            long[] bounds = FileUtils.splitToRead(inputFile, parts);
+            int count = 0;
+            for(int i=0; i+1<bounds.length; i++)
+            {
+                long start = Metrics.start();
+                CityTable table = new CityTable();
+                ByteBuffer data = FileUtils.mapToRead(inputFile, bounds[i], bounds[i+1]);
+                count += new CityLoader().parse(data, 0, data.limit(), table);
+                Metrics.stop(Metrics.Phase.PARSE, start);
+
+                start = Metrics.start();
+                int[] rows = CitySorts.identity(table.size());
+                strategy.sort(table, rows, order);
+                Metrics.stop(Metrics.Phase.SORT, start);
+
+                files.add(spill(table, rows));
+            }
+
+            while(files.size() > MAX_FAN_IN)
+            {
+                List<File> merged = new ArrayList<File>();
+                for(int from=0; from<files.size(); from+=MAX_FAN_IN)
+                {
+                    List<File> group = files.subList(from, Math.min(files.size(), from + MAX_FAN_IN));
+                    File run = newRun();
+                    merged.add(run);
+                    try(DataOutputStream out = FileUtils.openToWriteData(run.getPath()))
+                    {
+                        merge(group, out, false);
+                    }
+                    deleteAll(group);
+                }
+                files = merged;
+            }
+
+            try(DataOutputStream out = FileUtils.openToWriteData(outputFile))
+            {
+                merge(files, out, true);
+            }
+            return count;
+        }
+        finally
+        {
+            deleteAll(files);
+        }
+    }
+
+    /**
+     *  Writes a sorted run to a new temp file.
+     *
+     *  @param table    the run's cities
+     *  @param rows     the table's row ids, sorted
+     *  @return         the temp file
+     */
+    private File spill(CityTable table, int[] rows) throws IOException
+    {
+        long start = Metrics.start();
+        File run = newRun();
+        try(DataOutputStream out = FileUtils.openToWriteData(run.getPath()))
+        {
+            for(int row : rows)
+            {
+                byte[] name = table.getCityNameBytes(row);
+                out.writeInt(table.getPopulation(row));
+                out.writeUTF(table.getStateName(row));
+                out.writeUTF(table.getCityType(row));
+                out.writeInt(name.length);
+                out.write(name);
+            }
+        }
+        Metrics.stop(Metrics.Phase.SPILL, start);
+        return run;
+    }
+
+    /** @return a new empty temp file for a run, deleted on exit if not before */
+    private File newRun() throws IOException
+    {
+        File run = File.createTempFile("population-run", ".bin");
+        run.deleteOnExit();
+        runs++;
+        return run;
+    }
+
+    /** Deletes temp run files */
+    private static void deleteAll(List<File> files)
+    {
+        for(File file : files)
+            file.delete();
+    }
+
+    /**
+     *  Merges sorted runs into one, taking the smallest next record from a heap of the
+     *  runs' cursors each time.
+     *
+     *  @param files    the runs, in input order
+     *  @param out      where to write the merged records
+     *  @param asText   true to write data file lines, false to write run records
+     */
+    private void merge(List<File> files, DataOutputStream out, boolean asText) throws IOException
+    {
+        long start = Metrics.start();
+        PriorityQueue<Run> heap = new PriorityQueue<Run>(Math.max(files.size(), 1), this::compare);
+        List<Run> open = new ArrayList<Run>();
+        try
+        {
+            for(int i=0; i<files.size(); i++)
+            {
+                Run run = new Run(FileUtils.openToReadData(files.get(i).getPath()), i);
+                open.add(run);
+                if(run.next())
+                    heap.add(run);
+            }
+
+            while(!heap.isEmpty())
+            {
+                Run run = heap.poll();
+                if(asText)
+                    run.writeLine(out);
+                else
+                    run.writeRecord(out);
+                if(run.next())
+                    heap.add(run);
+            }
+            Metrics.countMerge();
+        }
+        finally
+        {
+            for(Run run : open)
+                run.in.close();
+        }
+        Metrics.stop(Metrics.Phase.MERGE, start);
+    }
+
+    /**
+     *  Compares the current records of two runs in this sort's order, then by which
+     *  run comes first in the input, or last for a descending order.
+     */
+    private int compare(Run a, Run b)
+    {
+        int cmp;
+        switch(order)
+        {
+            case POPULATION_ASCENDING:
+                cmp = compareByPopulation(a, b);
+                break;
+            case POPULATION_DESCENDING:
+                cmp = compareByPopulation(b, a);
+                break;
+            case NAME_ASCENDING:
+                cmp = Arrays.compareUnsigned(a.name, b.name);
+                break;
+            default:
+                cmp = Arrays.compareUnsigned(b.name, a.name);
+        }
+        if(cmp != 0)
+            return cmp;
+        return order == SortOrder.POPULATION_ASCENDING || order == SortOrder.NAME_ASCENDING
+                ? Integer.compare(a.index, b.index) : Integer.compare(b.index, a.index);
+    }
+
+    /**
+     *  Compares two records the way CityTable.compareRows compares two rows: by
+     *  population, then state name, then the bytes of the city name.
+     */
+    private static int compareByPopulation(Run a, Run b)
+    {
+        if(a.population != b.population)
+            return Integer.compare(a.population, b.population);
+        int cmp = a.state.compareTo(b.state);
+        return cmp != 0 ? cmp : Arrays.compareUnsigned(a.name, b.name);
+    }
+
+    /** A cursor over one spilled run, holding its current record */
+    private static class Run
+    {
+        final DataInputStream in;
+        final int index;    // position of the run among those being merged
+        int population;
+        String state;
+        String type;
+        byte[] name;
+
+        Run(DataInputStream in, int index)
+        {
+            this.in = in;
+            this.index = index;
+        }
+
+        /** @return true if a record was read, false at the end of the run */
+        boolean next() throws IOException
+        {
+            try
+            {
+                population = in.readInt();
+            }
+            catch(EOFException e)
+            {
+                return false;
+            }
+            state = in.readUTF();
+            type = in.readUTF();
+            name = new byte[in.readInt()];
+            in.readFully(name);
+            return true;
+        }
+
+        /** Writes the current record in the run format */
+        void writeRecord(DataOutputStream out) throws IOException
+        {
+            out.writeInt(population);
+            out.writeUTF(state);
+            out.writeUTF(type);
+            out.writeInt(name.length);
+            out.write(name);
+        }
+
+        /** Writes the current record as a data file line: state, city, designation, population */
+        void writeLine(DataOutputStream out) throws IOException
+        {
+            out.write(state.getBytes(StandardCharsets.UTF_8));
+            out.write('\t');
+            out.write(name);
+            out.write('\t');
+            out.write(type.getBytes(StandardCharsets.UTF_8));
+            out.write('\t');
+            out.write(Integer.toString(population).getBytes(StandardCharsets.US_ASCII));
+            out.write('\n');
+        }
+    }
+}
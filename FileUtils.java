@@ -1,6 +1,20 @@
 import java.io.PrintWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 /*
  * File utilities for reading and writing
@@ -34,6 +48,30 @@ public class FileUtils
         return input;
     }
 
+    /*Opens a file to read using the Scanner class, decoding it in a given charset
+    * rather than the platform default.
+    * @param fileName name of the file to open
+    * @param charset the charset the file is written in
+    * @return the Scanner object to the file
+    */
+
+    public static java.util.Scanner openToRead(String fileName, java.nio.charset.Charset charset)
+    {
+        java.util.Scanner input = null;
+
+        try
+        {
+            input = new java.util.Scanner(new java.io.File(fileName), charset);
+            input.useDelimiter("[\t\n]");
+        }
+        catch(IOException e)
+        {
+            System.err.println("ERROR: Cannot open "+fileName+" for reading.");
+            System.exit(-1);
+        }
+        return input;
+    }
+
     /*
     * Opens a file to write using the PrintWriter class.
     * @param fileName name of the file to open
@@ -55,4 +93,135 @@ public class FileUtils
         }
         return output;
     }
+
+    /*
+    * Opens a file to write raw bytes and binary values through a buffer, such as a
+    * sorted run spilled to disk or an export in the data file's UTF-8 format.
+    * Fails with an IOException rather than exiting, so the caller can clean up.
+    * @param fileName name of the file to open
+    * @return the DataOutputStream to the file
+    * @throws IOException if the file cannot be opened for writing
+    */
+
+    public static DataOutputStream openToWriteData(String fileName) throws IOException
+    {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16));
+    }
+
+    /*
+    * Opens a file written by openToWriteData to read it back through a buffer.
+    * Fails with an IOException rather than exiting, so the caller can clean up.
+    * @param fileName name of the file to open
+    * @return the DataInputStream to the file
+    * @throws IOException if the file cannot be opened for reading
+    */
+
+    public static DataInputStream openToReadData(String fileName) throws IOException
+    {
+        return new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), 1 << 16));
+    }
+
+    /*
+    * Maps a file into memory for reading, so its bytes can be scanned directly
+    * without a Scanner or a Reader.
+    * @param fileName name of the file to map
+    * @return the read-only buffer over the whole file
+    */
+
+    public static MappedByteBuffer mapToRead(String fileName)
+    {
+        MappedByteBuffer buffer = null;
+
+        try(FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ))
+        {
+            if(channel.size() > Integer.MAX_VALUE)
+            {
+                System.err.println("ERROR: "+fileName+" is too large to map");
+                System.exit(-1);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        catch(IOException e)
+        {
+            System.err.println("ERROR: Cannot open "+fileName+" for reading.");
+            System.exit(-1);
+        }
+        return buffer;
+    }
+
+    /*
+    * Splits a file into byte ranges that start and end on line boundaries, so each
+    * range can be parsed on its own. Every range except the first starts just after
+    * a newline. Ranges may be fewer than asked for if the file is small or has long lines.
+    * Fails with an UncheckedIOException rather than exiting, so a reload of a file
+    * that is being replaced can be given up without stopping the program.
+    * @param fileName name of the file to split
+    * @param parts the number of ranges wanted
+    * @return the range boundaries: range i is [bounds[i], bounds[i+1])
+    * @throws UncheckedIOException if the file cannot be read
+    */
+
+    public static long[] splitToRead(String fileName, int parts)
+    {
+        long[] bounds = new long[parts+1];
+        int count = 1;
+
+        try(FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            ByteBuffer probe = ByteBuffer.allocate(4096);
+
+            for(int i=1; i<parts; i++)
+            {
+                long pos = Math.max(size / parts * i, bounds[count-1]);
+                long boundary = size;
+                while(pos < size && boundary == size)
+                {
+                    probe.clear();
+                    int read = channel.read(probe, pos);
+                    for(int j=0; j<read && boundary == size; j++)
+                    {
+                        if(probe.get(j) == '\n')
+                            boundary = pos+j+1;
+                    }
+                    pos += Math.max(read, 1);
+                }
+                if(boundary > bounds[count-1] && boundary < size)
+                    bounds[count++] = boundary;
+            }
+            bounds[count++] = size;
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException("Cannot open "+fileName+" for reading", e);
+        }
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /*
+    * Maps part of a file into memory for reading. Like splitToRead, fails with an
+    * UncheckedIOException rather than exiting.
+    * @param fileName name of the file to map
+    * @param start position of the first byte to map
+    * @param end position one past the last byte to map
+    * @return the read-only buffer over bytes [start, end) of the file
+    * @throws UncheckedIOException if the file cannot be read or the range is too large
+    */
+
+    public static MappedByteBuffer mapToRead(String fileName, long start, long end)
+    {
+        MappedByteBuffer buffer = null;
+
+        try(FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ))
+        {
+            if(end - start > Integer.MAX_VALUE)
+                throw new IOException("range is too large to map");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException("Cannot open "+fileName+" for reading", e);
+        }
+        return buffer;
+    }
 }
@@ -0,0 +1,70 @@
+/**
+ *	GroupBy - The columns CityAggregator can group cities by. Groups are the
+ *	dictionary ids of the column, so grouping needs no hashing.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public enum GroupBy
+{
+    STATE,         // one group per state
+    DESIGNATION,   // one group per designation (city, town, village, CDP, ...)
+    ALL;           // one group holding every city
+
+    /**
+     *  @param table    the table being grouped
+     *  @return         the number of groups; group ids run from 0 to this minus one
+     */
+    public int numGroups(CityTable table)
+    {
+        switch(this)
+        {
+            case STATE: return table.numStates();
+            case DESIGNATION: return table.numTypes();
+            default: return 1;
+        }
+    }
+
+    /**
+     *  @param table    the table being grouped
+     *  @param row      a row id
+     *  @return         the id of the group the row is in
+     */
+    public int groupOf(CityTable table, int row)
+    {
+        switch(this)
+        {
+            case STATE: return table.getStateId(row);
+            case DESIGNATION: return table.getTypeId(row);
+            default: return 0;
+        }
+    }
+
+    /**
+     *  @param table    the table being grouped
+     *  @param group    a group id
+     *  @return         the group's name
+     */
+    public String groupName(CityTable table, int group)
+    {
+        switch(this)
+        {
+            case STATE: return table.stateName(group);
+            case DESIGNATION: return table.typeName(group);
+            default: return "All";
+        }
+    }
+
+    /**
+     *  Finds a grouping by name, ignoring case; "type" is accepted for DESIGNATION.
+     *
+     *  @param name     state, designation (or type), or all
+     *  @return         the grouping
+     *  @throws IllegalArgumentException if there is no grouping with that name
+     */
+    public static GroupBy parse(String name)
+    {
+        String key = name.trim().toUpperCase();
+        return key.equals("TYPE") ? DESIGNATION : valueOf(key);
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ *	GroupStats - The aggregates of one group of cities from CityAggregator: count,
+ *	total, minimum and maximum population, and, if the populations were kept,
+ *	percentiles and the share of the total held by the most populous cities.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class GroupStats
+{
+    private final String name;
+    private final int count;
+    private final long sum;
+    private final int min;
+    private final int max;
+    private final int[] values;   // every group's populations, or null if not kept
+    private final int from;       // start of this group's populations in values, sorted ascending
+    private final int to;         // end of this group's populations in values
+
+    /**
+     *  @param name     the group's name
+     *  @param count    number of cities in the group
+     *  @param sum      total population
+     *  @param min      smallest population
+     *  @param max      largest population
+     *  @param values   populations of all groups, or null if not kept
+     *  @param from     start of this group's populations in values, sorted ascending
+     *  @param to       end of this group's populations in values
+     */
+    public GroupStats(String name, int count, long sum, int min, int max, int[] values, int from, int to)
+    {
+        this.name = name;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.values = values;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**	Accessor methods */
+    public String getName() { return name; }
+    public int getCount() { return count; }
+    public long getSum() { return sum; }
+    public int getMin() { return min; }
+    public int getMax() { return max; }
+    public boolean hasValues() { return values != null; }
+
+    /** @return the mean population, or 0 for an empty group */
+    public double getAverage()
+    {
+        return count == 0 ? 0 : (double)sum / count;
+    }
+
+    /** @return the median population */
+    public int getMedian()
+    {
+        return percentile(50);
+    }
+
+    /**
+     *  Finds a percentile by the nearest-rank method.
+     *
+     *  @param p        the percentile, from 0 to 100
+     *  @return         the smallest population at or above p percent of the group, or 0
+     *                  for an empty group
+     *  @throws IllegalStateException if the populations were not kept
+     */
+    public int percentile(double p)
+    {
+        checkValues();
+        if(count == 0)
+            return 0;
+        int rank = (int)Math.ceil(p / 100 * count);
+        return values[from + Math.min(Math.max(rank, 1), count) - 1];
+    }
+
+    /**
+     *  @param n        number of cities
+     *  @return         the fraction of the group's population in its n most populous
+     *                  cities, from 0 to 1
+     *  @throws IllegalStateException if the populations were not kept
+     */
+    public double topShare(int n)
+    {
+        checkValues();
+        if(sum == 0)
+            return 0;
+        long top = 0;
+        for(int i=to-1; i>=Math.max(from, to-n); i--)
+            top += values[i];
+        return (double)top / sum;
+    }
+
+    /** @throws IllegalStateException if the populations were not kept */
+    private void checkValues()
+    {
+        if(values == null)
+            throw new IllegalStateException("populations of "+name+" were not kept");
+    }
+}
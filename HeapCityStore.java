@@ -0,0 +1,281 @@
+import java.util.Arrays;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *	HeapCityStore - CityStore that keeps each column in its own Java array, grown by
+ *	doubling as rows are added. This is the store a CityTable is filled and changed
+ *	in; OffHeapCityStore copies one out of the heap once it is frozen.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class HeapCityStore implements CityStore
+{
+    private final int INITIAL_ROWS = 1024;     // starting capacity of the row columns
+    private final int INITIAL_NAME_BYTES = 16 * 1024; // starting capacity of the name column
+
+    private int size;              // number of rows in the store
+    private int[] population;      // population of each row
+    private int[] stateId;         // dictionary id of each row's state
+    private int[] typeId;          // dictionary id of each row's designation
+    private byte[] nameBytes;      // UTF-8 bytes of all city names, back to back
+    private int[] nameStart;       // offset of each row's name in nameBytes (size+1 entries)
+
+    public HeapCityStore()
+    {
+        size = 0;
+        population = new int[INITIAL_ROWS];
+        stateId = new int[INITIAL_ROWS];
+        typeId = new int[INITIAL_ROWS];
+        nameBytes = new byte[INITIAL_NAME_BYTES];
+        nameStart = new int[INITIAL_ROWS + 1];
+    }
+
+    /**
+     *  Copies any store into a new heap store, sized to fit.
+     *
+     *  @param source   the store to copy
+     *  @return         the copy
+     */
+    public static HeapCityStore copyOf(CityStore source)
+    {
+        HeapCityStore copy = new HeapCityStore();
+        copy.addAll(source, null, null);
+        return copy;
+    }
+
+    /**
+     *  Reads columns written by writeTo, advancing the buffer past them.
+     *
+     *  @param in       the buffer to read from
+     *  @param rows     the number of rows
+     *  @return         the store
+     */
+    public static HeapCityStore readFrom(ByteBuffer in, int rows)
+    {
+        HeapCityStore store = new HeapCityStore();
+        store.size = rows;
+        store.population = CitySnapshot.readInts(in, rows);
+        store.stateId = CitySnapshot.readInts(in, rows);
+        store.typeId = CitySnapshot.readInts(in, rows);
+        store.nameStart = CitySnapshot.readInts(in, rows + 1);
+        store.nameBytes = new byte[store.nameStart[rows]];
+        in.get(store.nameBytes);
+        return store;
+    }
+
+    /**
+     *  Adds a row to the end of the store.
+     *
+     *  @param pop      population
+     *  @param state    state dictionary id
+     *  @param type     designation dictionary id
+     *  @param name     the city name's UTF-8 bytes
+     *  @return         the row id of the new row
+     */
+    public int add(int pop, int state, int type, byte[] name)
+    {
+        ensureRows(size + 1);
+        int start = nameStart[size];
+        ensureNameBytes(start + name.length);
+        System.arraycopy(name, 0, nameBytes, start, name.length);
+        return finishRow(pop, state, type, start + name.length);
+    }
+
+    /**
+     *  Adds a row whose city name is still raw UTF-8 bytes in a buffer, copying the
+     *  bytes straight into the name column.
+     *
+     *  @param pop      population
+     *  @param state    state dictionary id
+     *  @param type     designation dictionary id
+     *  @param source   buffer holding the city name
+     *  @param nameFrom position of the first byte of the name in source
+     *  @param nameTo   position one past the last byte of the name in source
+     *  @return         the row id of the new row
+     */
+    public int add(int pop, int state, int type, ByteBuffer source, int nameFrom, int nameTo)
+    {
+        ensureRows(size + 1);
+        int length = nameTo - nameFrom;
+        int start = nameStart[size];
+        ensureNameBytes(start + length);
+        source.get(nameFrom, nameBytes, start, length);
+        return finishRow(pop, state, type, start + length);
+    }
+
+    /** Fills in the int columns of the row being added, once its name is copied */
+    private int finishRow(int pop, int state, int type, int nameEnd)
+    {
+        population[size] = pop;
+        stateId[size] = state;
+        typeId[size] = type;
+        nameStart[size + 1] = nameEnd;
+        return size++;
+    }
+
+    /**
+     *  Appends every row of another store, in order, translating its dictionary ids.
+     *  Heap stores are copied in bulk.
+     *
+     *  @param other    the store whose rows to append
+     *  @param stateMap this store's state id for each of other's, or null to keep them
+     *  @param typeMap  this store's designation id for each of other's, or null to keep them
+     */
+    public void addAll(CityStore other, int[] stateMap, int[] typeMap)
+    {
+        int rows = other.size();
+        ensureRows(size + rows);
+        int base = nameStart[size];
+        int otherBytes = other.nameStart(rows);
+        ensureNameBytes(base + otherBytes);
+        other.copyNames(0, rows, nameBytes, base);
+
+        if(other instanceof HeapCityStore)
+            System.arraycopy(((HeapCityStore)other).population, 0, population, size, rows);
+        else
+        {
+            for(int i=0; i<rows; i++)
+                population[size + i] = other.population(i);
+        }
+        for(int i=0; i<rows; i++)
+        {
+            int state = other.stateId(i);
+            int type = other.typeId(i);
+            stateId[size + i] = stateMap == null ? state : stateMap[state];
+            typeId[size + i] = typeMap == null ? type : typeMap[type];
+            nameStart[size + i + 1] = base + other.nameStart(i + 1);
+        }
+        size += rows;
+    }
+
+    /** Changes the population of a row */
+    public void setPopulation(int row, int pop) { population[row] = pop; }
+
+    /** Changes the designation dictionary id of a row */
+    public void setTypeId(int row, int type) { typeId[row] = type; }
+
+    /**
+     *  Removes rows, moving the rows after each removed one down so the columns stay
+     *  packed. Rows keep their relative order.
+     *
+     *  @param removed  true for each row id to remove
+     *  @return         the new id of each old row id, or -1 for a removed row
+     */
+    public int[] removeRows(boolean[] removed)
+    {
+        int[] remap = new int[size];
+        int kept = 0;
+        int bytes = 0;
+        for(int row=0; row<size; row++)
+        {
+            if(removed[row])
+            {
+                remap[row] = -1;
+                continue;
+            }
+            int start = nameStart[row];
+            int length = nameStart[row + 1] - start;
+            System.arraycopy(nameBytes, start, nameBytes, bytes, length);
+            population[kept] = population[row];
+            stateId[kept] = stateId[row];
+            typeId[kept] = typeId[row];
+            nameStart[kept] = bytes;
+            bytes += length;
+            remap[row] = kept++;
+        }
+        nameStart[kept] = bytes;
+        size = kept;
+        return remap;
+    }
+
+    /** Grows the row columns so they can hold at least rows entries */
+    private void ensureRows(int rows)
+    {
+        if(rows <= population.length)
+            return;
+
+        int capacity = Math.max(rows, population.length * 2);
+        population = Arrays.copyOf(population, capacity);
+        stateId = Arrays.copyOf(stateId, capacity);
+        typeId = Arrays.copyOf(typeId, capacity);
+        nameStart = Arrays.copyOf(nameStart, capacity + 1);
+    }
+
+    /** Grows the name column so it can hold at least bytes bytes */
+    private void ensureNameBytes(int bytes)
+    {
+        if(bytes <= nameBytes.length)
+            return;
+
+        nameBytes = Arrays.copyOf(nameBytes, Math.max(bytes, nameBytes.length * 2));
+    }
+
+    /**	Accessor methods */
+    public int size() { return size; }
+    public int population(int row) { return population[row]; }
+    public int stateId(int row) { return stateId[row]; }
+    public int typeId(int row) { return typeId[row]; }
+    public int nameStart(int row) { return nameStart[row]; }
+
+    @Override
+    public void copyNames(int fromRow, int toRow, byte[] dst, int at)
+    {
+        System.arraycopy(nameBytes, nameStart[fromRow], dst, at, nameStart[toRow] - nameStart[fromRow]);
+    }
+
+    @Override
+    public String name(int row)
+    {
+        return new String(nameBytes, nameStart[row], nameStart[row + 1] - nameStart[row],
+                            StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void appendName(int row, StringBuilder buffer)
+    {
+        int end = nameStart[row + 1];
+        for(int i=nameStart[row]; i<end; i++)
+        {
+            if(nameBytes[i] < 0)
+            {
+                buffer.append(name(row));
+                return;
+            }
+        }
+        for(int i=nameStart[row]; i<end; i++)
+            buffer.append((char)nameBytes[i]);
+    }
+
+    @Override
+    public int compareNames(int a, int b)
+    {
+        int i = nameStart[a];
+        int j = nameStart[b];
+        int endA = nameStart[a + 1];
+        int endB = nameStart[b + 1];
+
+        while(i < endA && j < endB)
+        {
+            int diff = (nameBytes[i] & 0xff) - (nameBytes[j] & 0xff);
+            if(diff != 0)
+                return diff;
+            i++;
+            j++;
+        }
+        return (endA - nameStart[a]) - (endB - nameStart[b]);
+    }
+
+    @Override
+    public void writeTo(DataOutputStream out) throws IOException
+    {
+        CitySnapshot.writeInts(out, population, size);
+        CitySnapshot.writeInts(out, stateId, size);
+        CitySnapshot.writeInts(out, typeId, size);
+        CitySnapshot.writeInts(out, nameStart, size + 1);
+        out.write(nameBytes, 0, nameStart[size]);
+    }
+}
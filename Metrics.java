@@ -0,0 +1,373 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ *	Metrics - Timings and counters for the hot paths of Population: how long each
+ *	phase of loading and querying takes, how many comparisons, swaps and merges the
+ *	sorts do, and how many bytes each query allocates.
+ *
+ *	Each Phase keeps a Histogram of its run times in nanoseconds. Recording is
+ *	lock-free (LongAdders and atomic power-of-two buckets), so the query threads of
+ *	the HTTP server never wait on each other to record. The sorts count comparisons
+ *	and swaps in local variables and add them once per call, not once per operation.
+ *
+ *	The numbers can be read from the stats menu entry, as a Prometheus text dump
+ *	(batch mode's stats query and the server's /metrics), or over JMX once
+ *	register() has published them as an MXBean.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public final class Metrics implements MetricsMXBean
+{
+    /** The timed phases; each is timed on its own, so one may run inside another */
+    public enum Phase
+    {
+        PARSE,         // reading and parsing the text data file
+        SNAPSHOT,      // reading the binary snapshot
+        INDEX_BUILD,   // building or patching a sort-order index, sort included
+        SORT,          // sorting an index
+        SELECT,        // top-k selection
+        FILTER,        // testing rows against a query's filters
+        FORMAT,        // laying out a result set
+        WRITE,         // writing a laid-out result set
+        SPILL,         // writing a sorted run of an external sort to a temp file
+        MERGE,         // merging an external sort's runs
+        QUERY;         // a whole query, cache hit or not
+
+        /** @return the name used in metric names, like index_build */
+        public String metricName() { return name().toLowerCase(); }
+    }
+
+    private static final Histogram[] PHASES = new Histogram[Phase.values().length];
+    private static final Histogram QUERY_ALLOCATION = new Histogram();  // bytes allocated per query
+    private static final LongAdder COMPARISONS = new LongAdder();
+    private static final LongAdder SWAPS = new LongAdder();
+    private static final LongAdder MERGES = new LongAdder();
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    static
+    {
+        for(int i=0; i<PHASES.length; i++)
+            PHASES[i] = new Histogram();
+    }
+
+    private final QueryCache cache;   // cache whose hits and misses are reported, or null
+
+    /** @param cache    the query cache to report on, or null for none */
+    private Metrics(QueryCache cache)
+    {
+        this.cache = cache;
+    }
+
+    /**
+     *  Publishes the metrics over JMX as Population:type=Metrics.
+     *
+     *  @param cache    the query cache to report hits and misses for, or null
+     */
+    public static void register(QueryCache cache)
+    {
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Metrics(cache),
+                                                        new ObjectName("Population:type=Metrics"));
+        }
+        catch(JMException e)
+        {
+            System.err.println("ERROR: Cannot register metrics over JMX: "+e.getMessage());
+        }
+    }
+
+    /** @return the time to pass to stop() when the phase ends */
+    public static long start()
+    {
+        return System.nanoTime();
+    }
+
+    /**
+     *  @param phase    the phase that ended
+     *  @param start    what start() returned when it began
+     */
+    public static void stop(Phase phase, long start)
+    {
+        PHASES[phase.ordinal()].record(System.nanoTime() - start);
+    }
+
+    /**
+     *  @return         the bytes the current thread has allocated so far, to pass to
+     *                  stopQuery; -1 if the JVM can't tell
+     */
+    public static long allocatedBytes()
+    {
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     *  Records the end of a query: its time and what it allocated.
+     *
+     *  @param start        what start() returned when the query began
+     *  @param allocated    what allocatedBytes() returned when the query began
+     */
+    public static void stopQuery(long start, long allocated)
+    {
+        stop(Phase.QUERY, start);
+        if(allocated >= 0)
+            QUERY_ALLOCATION.record(allocatedBytes() - allocated);
+    }
+
+    /** @param count    comparisons a sort made */
+    public static void countComparisons(long count) { COMPARISONS.add(count); }
+
+    /** @param count    swaps a sort made */
+    public static void countSwaps(long count) { SWAPS.add(count); }
+
+    /** Counts one merge of two sorted runs */
+    public static void countMerge() { MERGES.increment(); }
+
+    /**
+     *  @param phase    a phase
+     *  @return         the histogram of its run times in nanoseconds
+     */
+    public static Histogram phase(Phase phase) { return PHASES[phase.ordinal()]; }
+
+    /** Sets every histogram and counter back to zero */
+    public static void resetAll()
+    {
+        for(Histogram histogram : PHASES)
+            histogram.reset();
+        QUERY_ALLOCATION.reset();
+        COMPARISONS.reset();
+        SWAPS.reset();
+        MERGES.reset();
+    }
+
+    /**
+     *  Lays out the metrics as a table for people: count, mean, median, 99th
+     *  percentile and longest time for each phase that ran, then the counters.
+     *
+     *  @param cache    the query cache to report on, or null
+     *  @return         the table, one line per metric
+     */
+    public static String summary(QueryCache cache)
+    {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("%-12s %10s %12s %12s %12s %12s%n", "Phase", "Count", "Mean us", "Median us",
+                                    "99% us", "Max us"));
+        for(Phase phase : Phase.values())
+        {
+            Histogram times = phase(phase);
+            if(times.getCount() > 0)
+                text.append(String.format("%-12s %,10d %,12.1f %,12.1f %,12.1f %,12.1f%n", phase.metricName(),
+                                            times.getCount(), times.getMean() / 1e3, times.percentile(50) / 1e3,
+                                            times.percentile(99) / 1e3, times.getMax() / 1e3));
+        }
+        text.append(String.format("%nComparisons %,d, swaps %,d, merges %,d%n", COMPARISONS.sum(), SWAPS.sum(),
+                                    MERGES.sum()));
+        if(QUERY_ALLOCATION.getCount() > 0)
+            text.append(String.format("Allocated per query: mean %,.0f bytes, max %,d bytes%n",
+                                        QUERY_ALLOCATION.getMean(), QUERY_ALLOCATION.getMax()));
+        if(cache != null)
+        {
+            long hits = cache.getHits();
+            long lookups = hits + cache.getMisses();
+            text.append(String.format("Query cache: %,d hits, %,d misses (%.1f%% hit rate), %d results held%n",
+                                        hits, cache.getMisses(), lookups == 0 ? 0 : 100.0 * hits / lookups,
+                                        cache.size()));
+        }
+        return text.toString();
+    }
+
+    /**
+     *  Writes the metrics in the Prometheus text exposition format. Phase times are
+     *  one histogram, population_phase_seconds, labelled by phase; its buckets are the
+     *  powers of two nanoseconds.
+     *
+     *  @param cache    the query cache to report on, or null
+     *  @return         the metrics text
+     */
+    public static String prometheus(QueryCache cache)
+    {
+        StringBuilder text = new StringBuilder();
+        text.append("# HELP population_phase_seconds Time spent in each phase of loading and querying.\n");
+        text.append("# TYPE population_phase_seconds histogram\n");
+        for(Phase phase : Phase.values())
+            PHASES[phase.ordinal()].appendPrometheus(text, "population_phase_seconds",
+                                                        "phase=\""+phase.metricName()+"\"", 1e-9);
+        text.append("# HELP population_query_allocated_bytes Bytes allocated by one query.\n");
+        text.append("# TYPE population_query_allocated_bytes histogram\n");
+        QUERY_ALLOCATION.appendPrometheus(text, "population_query_allocated_bytes", null, 1);
+        appendCounter(text, "population_sort_comparisons_total", "Row comparisons made by the sorts.",
+                        COMPARISONS.sum());
+        appendCounter(text, "population_sort_swaps_total", "Row ids swapped by the sorts.", SWAPS.sum());
+        appendCounter(text, "population_sort_merges_total", "Sorted runs merged by the merge sorts.", MERGES.sum());
+        if(cache != null)
+        {
+            appendCounter(text, "population_cache_hits_total", "Query results answered from the cache.",
+                            cache.getHits());
+            appendCounter(text, "population_cache_misses_total", "Query results that had to be worked out.",
+                            cache.getMisses());
+        }
+        return text.toString();
+    }
+
+    /** Appends one Prometheus counter with its help and type lines */
+    private static void appendCounter(StringBuilder text, String name, String help, long value)
+    {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(" counter\n");
+        text.append(name).append(' ').append(value).append('\n');
+    }
+
+    /** @return the JVM's per-thread allocation counter, or null if it has none */
+    private static com.sun.management.ThreadMXBean allocationCounter()
+    {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if(threads instanceof com.sun.management.ThreadMXBean)
+        {
+            com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean)threads;
+            if(counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled())
+                return counter;
+        }
+        return null;
+    }
+
+    /** MXBean methods */
+    public Map<String, Long> getPhaseCounts()
+    {
+        Map<String, Long> counts = new LinkedHashMap<String, Long>();
+        for(Phase phase : Phase.values())
+            counts.put(phase.metricName(), phase(phase).getCount());
+        return counts;
+    }
+
+    public Map<String, Long> getPhaseTotalNanos()
+    {
+        Map<String, Long> totals = new LinkedHashMap<String, Long>();
+        for(Phase phase : Phase.values())
+            totals.put(phase.metricName(), phase(phase).getSum());
+        return totals;
+    }
+
+    public Map<String, Long> getPhaseMaxNanos()
+    {
+        Map<String, Long> maxes = new LinkedHashMap<String, Long>();
+        for(Phase phase : Phase.values())
+            maxes.put(phase.metricName(), phase(phase).getMax());
+        return maxes;
+    }
+
+    public long getComparisons() { return COMPARISONS.sum(); }
+    public long getSwaps() { return SWAPS.sum(); }
+    public long getMerges() { return MERGES.sum(); }
+    public long getMeanQueryAllocatedBytes() { return THREADS == null ? -1 : Math.round(QUERY_ALLOCATION.getMean()); }
+    public long getCacheHits() { return cache == null ? 0 : cache.getHits(); }
+    public long getCacheMisses() { return cache == null ? 0 : cache.getMisses(); }
+    public String getPrometheusText() { return prometheus(cache); }
+    public void reset() { resetAll(); }
+
+    /**
+     *  A lock-free histogram of non-negative values. Bucket b counts the values below
+     *  2^b and at least 2^(b-1), so percentiles are known to within a factor of two;
+     *  the count, sum and maximum are exact.
+     */
+    public static final class Histogram
+    {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+
+        /** @param value    the value to record; negative values count as 0 */
+        public void record(long value)
+        {
+            value = Math.max(0, value);
+            count.increment();
+            sum.add(value);
+            buckets.incrementAndGet(Math.min(63, 64 - Long.numberOfLeadingZeros(value)));
+            long seen = max.get();
+            while(value > seen && !max.compareAndSet(seen, value))
+                seen = max.get();
+        }
+
+        /**	Accessor methods */
+        public long getCount() { return count.sum(); }
+        public long getSum() { return sum.sum(); }
+        public long getMax() { return max.get(); }
+
+        /** @return the mean value, or 0 if none were recorded */
+        public double getMean()
+        {
+            long n = count.sum();
+            return n == 0 ? 0 : (double)sum.sum() / n;
+        }
+
+        /**
+         *  @param p        the percentile, from 0 to 100
+         *  @return         the upper bound of the bucket holding the pth percentile, at
+         *                  most the maximum; 0 if no values were recorded
+         */
+        public long percentile(double p)
+        {
+            long n = 0;
+            for(int b=0; b<buckets.length(); b++)
+                n += buckets.get(b);
+            long rank = Math.max(1, (long)Math.ceil(p / 100 * n));
+            long seen = 0;
+            for(int b=0; b<buckets.length() && n > 0; b++)
+            {
+                seen += buckets.get(b);
+                if(seen >= rank)
+                    return Math.min(max.get(), (1L << b) - 1);
+            }
+            return max.get();
+        }
+
+        /** Sets the histogram back to zero */
+        public void reset()
+        {
+            count.reset();
+            sum.reset();
+            max.set(0);
+            for(int b=0; b<buckets.length(); b++)
+                buckets.set(b, 0);
+        }
+
+        /**
+         *  Appends the histogram's cumulative buckets, sum and count in the Prometheus
+         *  text format, up to the highest bucket holding a value.
+         *
+         *  @param text     where to append
+         *  @param name     the metric name
+         *  @param labels   labels to put on every line, like phase="sort", or null
+         *  @param scale    multiplies values into the metric's unit
+         */
+        void appendPrometheus(StringBuilder text, String name, String labels, double scale)
+        {
+            String prefix = labels == null ? "" : labels+",";
+            int highest = 0;
+            for(int b=0; b<buckets.length(); b++)
+            {
+                if(buckets.get(b) > 0)
+                    highest = b;
+            }
+            long cumulative = 0;
+            for(int b=0; b<=highest; b++)
+            {
+                cumulative += buckets.get(b);
+                text.append(name).append("_bucket{").append(prefix).append("le=\"")
+                    .append((double)((1L << b) - 1) * scale).append("\"} ").append(cumulative).append('\n');
+            }
+            text.append(name).append("_bucket{").append(prefix).append("le=\"+Inf\"} ").append(getCount()).append('\n');
+            String suffix = labels == null ? "" : "{"+labels+"}";
+            text.append(name).append("_sum").append(suffix).append(' ').append(getSum() * scale).append('\n');
+            text.append(name).append("_count").append(suffix).append(' ').append(getCount()).append('\n');
+        }
+    }
+}
@@ -0,0 +1,44 @@
+import java.util.Map;
+
+/**
+ *	MetricsMXBean - The JMX view of Metrics, registered as Population:type=Metrics.
+ *	Phase maps are keyed by the phase's metric name, such as "index_build".
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public interface MetricsMXBean
+{
+    /** @return the number of times each phase ran */
+    Map<String, Long> getPhaseCounts();
+
+    /** @return the total nanoseconds spent in each phase */
+    Map<String, Long> getPhaseTotalNanos();
+
+    /** @return the longest single run of each phase, in nanoseconds */
+    Map<String, Long> getPhaseMaxNanos();
+
+    /** @return row comparisons made by the sorts */
+    long getComparisons();
+
+    /** @return row ids swapped by CitySorts.swap */
+    long getSwaps();
+
+    /** @return sorted runs merged by the merge sorts */
+    long getMerges();
+
+    /** @return the mean bytes allocated by one query, or -1 if the JVM can't tell */
+    long getMeanQueryAllocatedBytes();
+
+    /** @return query results answered from the QueryCache */
+    long getCacheHits();
+
+    /** @return query results that had to be worked out */
+    long getCacheMisses();
+
+    /** @return every metric in the Prometheus text format */
+    String getPrometheusText();
+
+    /** Sets every timer, histogram and counter back to zero */
+    void reset();
+}
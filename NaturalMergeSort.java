@@ -0,0 +1,174 @@
+/**
+ *	NaturalMergeSort - Merge sort that starts from the runs already in its input, in
+ *	the style of TimSort, so nearly sorted rows cost close to one pass.
+ *
+ *	The input is split into maximal runs that are either in order or strictly in
+ *	reverse order; reversed runs are turned around in place, and runs shorter than
+ *	MIN_RUN are extended with insertion sort. Neighbouring runs are then merged in
+ *	passes until one run is left, so k runs take about log2(k) passes, and input that
+ *	is already sorted is one run and needs no merging at all. As in ParallelMergeSort,
+ *	a merge copies out only the left run, and is skipped when the two runs are
+ *	already in order. The scratch buffer is kept between calls.
+ *
+ *	The sort is stable.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class NaturalMergeSort
+{
+    public static final int MIN_RUN = 32;   // shorter runs are extended with insertion sort
+
+    private int[] scratch;   // merge buffer, grown as needed and reused
+
+    public NaturalMergeSort()
+    {
+        scratch = new int[0];
+    }
+
+    /**
+     *  Counts the runs in the rows: maximal stretches that are in order or strictly in
+     *  reverse order. Stops counting once there are more than max.
+     *
+     *  @param rows     the row ids
+     *  @param cmp      the row order
+     *  @param max      the most runs worth counting
+     *  @return         the number of runs, or max+1 if there are more than max
+     */
+    public static int countRuns(int[] rows, RowComparator cmp, int max)
+    {
+        int runs = 0;
+        long compares = 0;
+        for(int start=0; start<rows.length && runs<=max; runs++)
+        {
+            int end = runEnd(rows, start, cmp);
+            compares += end - start;
+            start = end;
+        }
+        Metrics.countComparisons(compares);
+        return Math.min(runs, max+1);
+    }
+
+    /**
+     *  Sorts all the rows. Calls are serialized, since they share the scratch buffer.
+     *
+     *  @param rows     the row ids to sort
+     *  @param cmp      the row order
+     */
+    public synchronized void sort(int[] rows, RowComparator cmp)
+    {
+        int n = rows.length;
+        if(scratch.length < n)
+            scratch = new int[n];
+
+        // starts[i] is where run i starts; the last entry is n
+        int[] starts = new int[n / MIN_RUN + 2];
+        int numRuns = 0;
+        long compares = 0;
+        long swaps = 0;
+        for(int start=0; start<n; numRuns++)
+        {
+            int end = runEnd(rows, start, cmp);
+            compares += end - start;
+            if(end - start > 1 && cmp.compare(rows[start+1], rows[start]) < 0)
+            {
+                reverse(rows, start, end);
+                swaps += (end - start) / 2;
+            }
+            if(end - start < MIN_RUN && end < n)
+            {
+                end = Math.min(n, start + MIN_RUN);
+                CitySorts.insertionSort(rows, start, end-1, cmp);
+            }
+            starts[numRuns] = start;
+            start = end;
+        }
+        starts[numRuns] = n;
+        Metrics.countComparisons(compares);
+        Metrics.countSwaps(swaps);
+
+        while(numRuns > 1)
+        {
+            int merged = 0;
+            for(int run=0; run<numRuns; run+=2)
+            {
+                if(run+1 < numRuns)
+                    merge(rows, starts[run], starts[run+1], starts[run+2], cmp);
+                starts[merged++] = starts[run];
+            }
+            starts[merged] = n;
+            numRuns = merged;
+        }
+    }
+
+    /**
+     *  @param rows     the row ids
+     *  @param start    where the run starts
+     *  @param cmp      the row order
+     *  @return         one past the end of the run starting at start
+     */
+    private static int runEnd(int[] rows, int start, RowComparator cmp)
+    {
+        int end = start+1;
+        if(end >= rows.length)
+            return end;
+        if(cmp.compare(rows[end], rows[start]) < 0)
+        {
+            while(end+1 < rows.length && cmp.compare(rows[end+1], rows[end]) < 0)
+                end++;
+        }
+        else
+        {
+            while(end+1 < rows.length && cmp.compare(rows[end+1], rows[end]) >= 0)
+                end++;
+        }
+        return end+1;
+    }
+
+    /** Reverses rows[from, to) in place */
+    private static void reverse(int[] rows, int from, int to)
+    {
+        for(int i=from, j=to-1; i<j; i++, j--)
+            CitySorts.swap(rows, i, j);
+    }
+
+    /**
+     *  Merges the sorted runs rows[from, middle) and rows[middle, to), copying only the
+     *  left run out to the scratch buffer. Skips the merge when the runs are already
+     *  in order.
+     *
+     *  @param rows     the row ids to sort
+     *  @param from     start of the left run
+     *  @param middle   start of the right run
+     *  @param to       end of the right run
+     *  @param cmp      the row order
+     */
+    private void merge(int[] rows, int from, int middle, int to, RowComparator cmp)
+    {
+        Metrics.countMerge();
+        if(cmp.compare(rows[middle-1], rows[middle]) <= 0)
+        {
+            Metrics.countComparisons(1);
+            return;
+        }
+
+        int[] temp = scratch;
+        System.arraycopy(rows, from, temp, from, middle-from);
+
+        int i = from;
+        int j = middle;
+        int k = from;
+        long compares = 1;
+        while(i<middle && j<to)
+        {
+            compares++;
+            if(cmp.compare(rows[j], temp[i]) < 0)
+                rows[k++] = rows[j++];
+            else
+                rows[k++] = temp[i++];
+        }
+        while(i<middle)
+            rows[k++] = temp[i++];
+        Metrics.countComparisons(compares);
+    }
+}
@@ -0,0 +1,178 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *	OffHeapCityStore - Read-only CityStore held outside the Java heap, in one
+ *	ByteBuffer laid out the way CitySnapshot stores a table's columns:
+ *		population      size ints
+ *		state ids       size ints
+ *		designation ids size ints
+ *		name offsets    size+1 ints
+ *		names           the packed UTF-8 bytes
+ *
+ *	The buffer is either direct memory the columns were copied into, or a slice of a
+ *	memory-mapped snapshot file, read in place without copying it onto the heap. The
+ *	garbage collector sees one small object either way, however many rows there are.
+ *	Every read is an absolute get, so any number of threads can read at once.
+ *
+ *	Offsets are ints, so one store holds at most 2 GB of columns.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class OffHeapCityStore implements CityStore
+{
+    private static final int CHUNK = 64 * 1024;   // bytes staged per bulk copy
+
+    private final ByteBuffer columns;   // the columns, big-endian, in the layout above
+    private final int size;             // number of rows
+    private final int stateBase;        // byte offset of the state id column
+    private final int typeBase;         // byte offset of the designation id column
+    private final int startBase;        // byte offset of the name offsets column
+    private final int nameBase;         // byte offset of the first name byte
+
+    /**
+     *  @param columns  the columns, from position 0
+     *  @param rows     the number of rows
+     */
+    private OffHeapCityStore(ByteBuffer columns, int rows)
+    {
+        this.columns = columns;
+        size = rows;
+        stateBase = 4 * rows;
+        typeBase = 8 * rows;
+        startBase = 12 * rows;
+        nameBase = 16 * rows + 4;
+    }
+
+    /**
+     *  Copies any store into newly allocated direct memory.
+     *
+     *  @param source   the store to copy
+     *  @return         the off-heap copy
+     *  @throws IllegalArgumentException if the columns need more than 2 GB
+     */
+    public static OffHeapCityStore copyOf(CityStore source)
+    {
+        int rows = source.size();
+        long bytes = 16L * rows + 4 + source.nameStart(rows);
+        if(bytes > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("too many cities for one off-heap store: "+rows);
+
+        ByteBuffer columns = ByteBuffer.allocateDirect((int)bytes);
+        for(int row=0; row<rows; row++)
+            columns.putInt(source.population(row));
+        for(int row=0; row<rows; row++)
+            columns.putInt(source.stateId(row));
+        for(int row=0; row<rows; row++)
+            columns.putInt(source.typeId(row));
+        for(int row=0; row<=rows; row++)
+            columns.putInt(source.nameStart(row));
+
+        byte[] chunk = new byte[CHUNK];
+        for(int from=0; from<rows; )
+        {
+            int to = from + 1;
+            while(to < rows && source.nameStart(to + 1) - source.nameStart(from) <= CHUNK)
+                to++;
+            int length = source.nameStart(to) - source.nameStart(from);
+            byte[] names = length <= CHUNK ? chunk : new byte[length];   // a name longer than a chunk
+            source.copyNames(from, to, names, 0);
+            columns.put(names, 0, length);
+            from = to;
+        }
+        return new OffHeapCityStore(columns, rows);
+    }
+
+    /**
+     *  Uses columns written by CityStore.writeTo in place, such as in a mapped
+     *  snapshot file, advancing the buffer past them.
+     *
+     *  @param in       the buffer holding the columns at its position
+     *  @param rows     the number of rows
+     *  @return         the store, reading from a slice of in
+     */
+    public static OffHeapCityStore wrap(ByteBuffer in, int rows)
+    {
+        int nameBytes = in.getInt(in.position() + 16 * rows);
+        int bytes = 16 * rows + 4 + nameBytes;
+        ByteBuffer columns = in.slice(in.position(), bytes);
+        in.position(in.position() + bytes);
+        return new OffHeapCityStore(columns, rows);
+    }
+
+    /**	Accessor methods */
+    public int size() { return size; }
+    public int population(int row) { return columns.getInt(4 * row); }
+    public int stateId(int row) { return columns.getInt(stateBase + 4 * row); }
+    public int typeId(int row) { return columns.getInt(typeBase + 4 * row); }
+    public int nameStart(int row) { return columns.getInt(startBase + 4 * row); }
+
+    @Override
+    public void copyNames(int fromRow, int toRow, byte[] dst, int at)
+    {
+        int start = nameStart(fromRow);
+        columns.get(nameBase + start, dst, at, nameStart(toRow) - start);
+    }
+
+    @Override
+    public String name(int row)
+    {
+        byte[] bytes = new byte[nameStart(row + 1) - nameStart(row)];
+        copyNames(row, row + 1, bytes, 0);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void appendName(int row, StringBuilder buffer)
+    {
+        int start = nameBase + nameStart(row);
+        int end = nameBase + nameStart(row + 1);
+        for(int i=start; i<end; i++)
+        {
+            if(columns.get(i) < 0)
+            {
+                buffer.append(name(row));
+                return;
+            }
+        }
+        for(int i=start; i<end; i++)
+            buffer.append((char)columns.get(i));
+    }
+
+    @Override
+    public int compareNames(int a, int b)
+    {
+        int i = nameBase + nameStart(a);
+        int j = nameBase + nameStart(b);
+        int endA = nameBase + nameStart(a + 1);
+        int endB = nameBase + nameStart(b + 1);
+        int lengthA = endA - i;
+        int lengthB = endB - j;
+
+        while(i < endA && j < endB)
+        {
+            int diff = (columns.get(i) & 0xff) - (columns.get(j) & 0xff);
+            if(diff != 0)
+                return diff;
+            i++;
+            j++;
+        }
+        return lengthA - lengthB;
+    }
+
+    @Override
+    public void writeTo(DataOutputStream out) throws IOException
+    {
+        byte[] chunk = new byte[CHUNK];
+        int bytes = columns.capacity();
+        for(int i=0; i<bytes; i+=CHUNK)
+        {
+            int n = Math.min(CHUNK, bytes - i);
+            columns.get(i, chunk, 0, n);
+            out.write(chunk, 0, n);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+/**
+ *	OutputFormat - The layouts a ResultWriter can write query results in.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public enum OutputFormat
+{
+    TABLE,   // aligned columns with numbered rows, as printed by the menu
+    TSV,     // tab-separated, one header line
+    CSV,     // comma-separated with quoting, one header line
+    JSON;    // one JSON object per row (JSON lines)
+
+    /**
+     *  Finds a format by name, ignoring case.
+     *
+     *  @param name     table, tsv, csv or json
+     *  @return         the format
+     *  @throws IllegalArgumentException if there is no format with that name
+     */
+    public static OutputFormat parse(String name)
+    {
+        return valueOf(name.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,159 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ *	ParallelMergeSort - Fork-join merge sort over an int[] permutation of row ids.
+ *
+ *	Ranges longer than the sequential cutoff are split in half and the halves sorted
+ *	in parallel on a ForkJoinPool; shorter ranges are sorted on the current thread,
+ *	and runs of INSERTION_CUTOFF rows or fewer use insertion sort. Every merge uses
+ *	the same region of one scratch buffer as the range it merges, so parallel tasks
+ *	never overlap and the buffer is allocated once and reused across calls.
+ *
+ *	The sort is stable. The comparator must be safe to call from several threads.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class ParallelMergeSort
+{
+    public static final int DEFAULT_CUTOFF = 8192;  // ranges this short are sorted on one thread
+    public static final int INSERTION_CUTOFF = 32;  // runs this short use insertion sort
+
+    private final ForkJoinPool pool;  // pool the sort tasks run on
+    private final int cutoff;         // sequential cutoff
+    private int[] scratch;            // merge buffer, grown as needed and reused
+
+    public ParallelMergeSort()
+    {
+        this(ForkJoinPool.commonPool(), DEFAULT_CUTOFF);
+    }
+
+    /**
+     *  @param pool     the pool to run the sort tasks on
+     *  @param cutoff   ranges of at most this many rows are sorted on a single thread
+     */
+    public ParallelMergeSort(ForkJoinPool pool, int cutoff)
+    {
+        this.pool = pool;
+        this.cutoff = Math.max(cutoff, INSERTION_CUTOFF);
+        scratch = new int[0];
+    }
+
+    /**
+     *  Sorts all the rows. Calls are serialized, since they share the scratch buffer.
+     *
+     *  @param rows     the row ids to sort
+     *  @param cmp      the row order
+     */
+    public synchronized void sort(int[] rows, RowComparator cmp)
+    {
+        if(scratch.length < rows.length)
+            scratch = new int[rows.length];
+
+        if(rows.length <= cutoff)
+            sortSequential(rows, 0, rows.length, cmp);
+        else
+            pool.invoke(new SortTask(rows, 0, rows.length, cmp));
+    }
+
+    /** @return the sequential cutoff */
+    public int getCutoff() { return cutoff; }
+
+    /**
+     *  Sorts rows[from, to) on the current thread.
+     *
+     *  @param rows     the row ids to sort
+     *  @param from     first position to sort
+     *  @param to       one past the last position to sort
+     *  @param cmp      the row order
+     */
+    private void sortSequential(int[] rows, int from, int to, RowComparator cmp)
+    {
+        if(to - from <= INSERTION_CUTOFF)
+        {
+            CitySorts.insertionSort(rows, from, to-1, cmp);
+            return;
+        }
+
+        int middle = (from+to) >>> 1;
+        sortSequential(rows, from, middle, cmp);
+        sortSequential(rows, middle, to, cmp);
+        merge(rows, from, middle, to, cmp);
+    }
+
+    /**
+     *  Merges the sorted runs rows[from, middle) and rows[middle, to). Only the left run
+     *  is copied out to the scratch buffer. Skips the merge when the runs are already
+     *  in order.
+     *
+     *  @param rows     the row ids to sort
+     *  @param from     start of the left run
+     *  @param middle   start of the right run
+     *  @param to       end of the right run
+     *  @param cmp      the row order
+     */
+    private void merge(int[] rows, int from, int middle, int to, RowComparator cmp)
+    {
+        Metrics.countMerge();
+        if(cmp.compare(rows[middle-1], rows[middle]) <= 0)
+        {
+            Metrics.countComparisons(1);
+            return;
+        }
+
+        int[] temp = scratch;
+        System.arraycopy(rows, from, temp, from, middle-from);
+
+        int i = from;
+        int j = middle;
+        int k = from;
+        long compares = 1;
+        while(i<middle && j<to)
+        {
+            compares++;
+            if(cmp.compare(rows[j], temp[i]) < 0)
+                rows[k++] = rows[j++];
+            else
+                rows[k++] = temp[i++];
+        }
+        while(i<middle)
+            rows[k++] = temp[i++];
+        Metrics.countComparisons(compares);
+    }
+
+    /**
+     *  Fork-join task that sorts one range, splitting it while it is longer than the cutoff.
+     */
+    private class SortTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] rows;
+        private final int from;
+        private final int to;
+        private final RowComparator cmp;
+
+        SortTask(int[] rows, int from, int to, RowComparator cmp)
+        {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.cmp = cmp;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(to - from <= cutoff)
+            {
+                sortSequential(rows, from, to, cmp);
+                return;
+            }
+
+            int middle = (from+to) >>> 1;
+            invokeAll(new SortTask(rows, from, middle, cmp), new SortTask(rows, middle, to, cmp));
+            merge(rows, from, middle, to, cmp);
+        }
+    }
+}
@@ -1,12 +1,15 @@
-import java.util.List;
-import java.util.Scanner;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  *	Population - This program allows the user to navigate the us population database, which contains 
  *  data of most of the states and cities in the US, along with their city types and population. The user
- *  is allowed to pick one of six categories provided to sort the database in a different way. Each
- *  category uses different sorting methods to sort the database.
+ *  is allowed to pick one of the categories provided to list the database in a different way. The
+ *  orders are read from sort-order indexes, built by default with an AdaptiveSort that picks the
+ *  sorting method by the size and order of the data.
  *
  *	Requires FileUtils and Prompt classes.
  *
@@ -15,26 +18,136 @@ import java.util.ArrayList;
  */
 public class Population {
 	
-	// List of cities
-	private List<City> cities;
+	// The loaded cities with their indexes, lookups and queries; swapped whole on reload
+	private final AtomicReference<CityDataset> dataset;
+    private final QueryCache cache; //recent query results, cleared when the data is reloaded
+    private ResultWriter writer; //writes query results to standard output
+    private boolean lazyIndexes; //build each sort-order index on first use instead of at load
+    private SortAlgorithm sortAlgorithm; //the sort the indexes are built with
+    private boolean useSnapshot; //load from and save to a binary snapshot of the data file
+    private boolean offHeap; //hold the cities outside the heap, in direct memory or the mapped snapshot
+    private boolean watch; //reload the data file in the background whenever it changes
+    private String bindAddress; //address --serve listens on, or null for the loopback address
+    private List<String> deltas; //delta files applied after the data is loaded
     private boolean quit; //boolean that indicates when the user wants to quit
     private int numMatchingCities; //number of citites that match a city name given by the user
 	
 	// US data file
 	private final String DATA_FILE = "usPopData2017.txt";
-	private final int NUM_CITIES = 50; //number of cities to be printed from the database
+	private final int NUM_CITIES = 50; //default number of cities to be printed from the database
+    private int numCities; //number of cities to be printed from the database
 
     public Population()
     {
-        cities = new ArrayList<City>();  
+        this(false, 50, SortAlgorithm.ADAPTIVE);
+    }
+
+    /**
+     *  @param lazyIndexes  true to build the sort-order indexes on first use instead of at load
+     *  @param numCities    number of cities to print for the "fifty most/least" queries
+     *  @param sortAlgorithm the sort to build the sort-order indexes with
+     */
+    public Population(boolean lazyIndexes, int numCities, SortAlgorithm sortAlgorithm)
+    {
+        this.lazyIndexes = lazyIndexes;
+        this.sortAlgorithm = sortAlgorithm;
+        useSnapshot = true;
+        offHeap = false;
+        watch = false;
+        deltas = new ArrayList<String>();
+        this.numCities = numCities;
+        dataset = new AtomicReference<CityDataset>();
+        cache = new QueryCache();
+        writer = new ResultWriter(System.out, OutputFormat.TABLE);
         quit = false;
         numMatchingCities = 0;
     }
     
+    /**
+     *  Options: --lazy builds each sort-order index on first use, --limit N prints
+     *  N cities per query instead of fifty, --sort ALGORITHM picks the SortAlgorithm the
+     *  indexes are built with (adaptive by default), and --no-snapshot always parses the
+     *  text data file instead of using its binary snapshot. --off-heap holds the cities
+     *  outside the heap: read in place from the mapped snapshot, or copied into direct
+     *  memory after parsing (see OffHeapCityStore). --batch FILE runs the queries
+     *  in FILE (or standard input if FILE is -) instead of the interactive menu; see
+     *  BatchQueryRunner for the query language. --format table|tsv|csv|json picks the
+     *  layout results are written in (table by default). --serve PORT answers the menu
+     *  queries over HTTP instead; see PopulationServer. It listens on the loopback
+     *  address only, unless --bind ADDRESS names another, such as 0.0.0.0 for every
+     *  network the machine is on. --watch reloads the data file in the background
+     *  whenever it changes, for the menu and --serve. --delta FILE applies the
+     *  corrections in a delta file after loading (see CityDelta); it may be given more
+     *  than once. A --watch reload starts again from the full data file.
+     *  The menu and --serve publish their Metrics over JMX as Population:type=Metrics.
+     *  --export ORDER FILE writes every city to FILE in an order (pop or name, then
+     *  optionally -asc or -desc) with an ExternalSort instead, which sorts runs of the
+     *  data file in --run-mb N megabytes of input at a time (64 by default).
+     */
 	public static void main(String[] args)
 	{
-		Population pop = new Population();
-		pop.run();
+        boolean lazy = false;
+        int limit = 50;
+        SortAlgorithm algorithm = SortAlgorithm.ADAPTIVE;
+        boolean snapshot = true;
+        boolean offHeap = false;
+        String exportOrder = null;
+        String exportFile = null;
+        long runBytes = ExternalSort.DEFAULT_RUN_BYTES;
+        String batch = null;
+        int port = -1;
+        String bind = null;
+        boolean watch = false;
+        List<String> deltas = new ArrayList<String>();
+        OutputFormat format = OutputFormat.TABLE;
+        for(int i=0; i<args.length; i++)
+        {
+            if(args[i].equals("--lazy"))
+                lazy = true;
+            else if(args[i].equals("--limit") && i+1 < args.length)
+                limit = Integer.parseInt(args[++i]);
+            else if(args[i].equals("--sort") && i+1 < args.length)
+                algorithm = SortAlgorithm.parse(args[++i]);
+            else if(args[i].equals("--no-snapshot"))
+                snapshot = false;
+            else if(args[i].equals("--off-heap"))
+                offHeap = true;
+            else if(args[i].equals("--batch") && i+1 < args.length)
+                batch = args[++i];
+            else if(args[i].equals("--format") && i+1 < args.length)
+                format = OutputFormat.parse(args[++i]);
+            else if(args[i].equals("--serve") && i+1 < args.length)
+                port = Integer.parseInt(args[++i]);
+            else if(args[i].equals("--bind") && i+1 < args.length)
+                bind = args[++i];
+            else if(args[i].equals("--watch"))
+                watch = true;
+            else if(args[i].equals("--delta") && i+1 < args.length)
+                deltas.add(args[++i]);
+            else if(args[i].equals("--export") && i+2 < args.length)
+            {
+                exportOrder = args[++i];
+                exportFile = args[++i];
+            }
+            else if(args[i].equals("--run-mb") && i+1 < args.length)
+                runBytes = Long.parseLong(args[++i]) << 20;
+        }
+
+		Population pop = new Population(lazy, limit, algorithm);
+        pop.setUseSnapshot(snapshot);
+        pop.setOffHeap(offHeap);
+        pop.setFormat(format);
+        pop.setWatch(watch);
+        pop.setBindAddress(bind);
+        pop.setDeltas(deltas);
+        if(exportFile != null)
+            pop.export(CityQuery.parseOrder(exportOrder), exportFile, runBytes);
+        else if(batch != null)
+            pop.runBatch(batch);
+        else if(port >= 0)
+            pop.serve(port);
+        else
+		    pop.run();
 	}
 	
     /** 
@@ -43,7 +156,10 @@ public class Population {
 	public void run()
 	{
 		printIntroduction();
+        Metrics.register(cache);
         readAndLoadData();
+        if(watch)
+            watchDataFile();
 		printMenu();
         while(!quit)
         {
@@ -51,6 +167,86 @@ public class Population {
         }
 		System.out.println("\nThank you for using Population!");
 	}
+
+    /**
+     *  Sorts the whole data file into an order with an ExternalSort and writes it to a
+     *  new data file, without loading it all into memory.
+     *
+     *  @param order    the order to write the cities in
+     *  @param file     name of the file to write
+     *  @param runBytes about how many bytes of the data file to sort in memory at once
+     */
+    public void export(SortOrder order, String file, long runBytes)
+    {
+        long start = System.nanoTime();
+        ExternalSort sorter = new ExternalSort(order, sortAlgorithm, runBytes);
+        try
+        {
+            int count = sorter.sort(DATA_FILE, file);
+            System.out.println("Wrote "+count+" cities to "+file+" from "+sorter.getRuns()+" sorted runs in "
+                                +(System.nanoTime() - start)/1000000+" milliseconds");
+        }
+        catch(IOException | UncheckedIOException e)
+        {
+            System.err.println("ERROR: Cannot export "+DATA_FILE+" to "+file+": "+e.getMessage());
+        }
+    }
+
+    /**
+     *  Loads the data once, then runs every query in a query script and streams the
+     *  results to standard output.
+     *
+     *  @param script   name of the query script, or - for standard input
+     */
+    public void runBatch(String script)
+    {
+        readAndLoadData();
+        new BatchQueryRunner(dataset.get().getQueries(), numCities, writer).run(script);
+    }
+
+    /**
+     *  Loads the data once, then serves the menu queries over HTTP until the program
+     *  is stopped.
+     *
+     *  @param port     the port to listen on
+     */
+    public void serve(int port)
+    {
+        Metrics.register(cache);
+        readAndLoadData();
+        if(watch)
+            watchDataFile();
+        try
+        {
+            PopulationServer server = new PopulationServer(dataset::get, numCities, bindAddress, port);
+            server.start();
+            System.out.println("Serving queries on http://"+(bindAddress == null ? "localhost" : bindAddress)
+                                +":"+server.getPort()+"/");
+        }
+        catch(IOException e)
+        {
+            System.err.println("ERROR: Cannot serve on port "+port+": "+e.getMessage());
+            System.exit(-1);
+        }
+    }
+
+    /**
+     *  Starts a DataFileWatcher that reloads the data file on a background thread
+     *  whenever it changes and swaps the new dataset in.
+     */
+    public void watchDataFile()
+    {
+        try
+        {
+            new DataFileWatcher(DATA_FILE, () -> CityDataset.load(DATA_FILE, lazyIndexes, sortAlgorithm,
+                                                                    useSnapshot, offHeap, cache), dataset).start();
+        }
+        catch(IOException e)
+        {
+            System.err.println("ERROR: Cannot watch "+DATA_FILE+": "+e.getMessage());
+        }
+    }
+
 	/**	Prints the introduction to Population */
 	public void printIntroduction() {
 		System.out.println("   ___                  _       _   _");
@@ -64,66 +260,107 @@ public class Population {
 	
 	/**	Print out the choices for population sorting */
 	public void printMenu() {
-		System.out.println("1. Fifty least populous cities in USA (Selection Sort)");
-		System.out.println("2. Fifty most populous cities in USA (Merge Sort)");
-		System.out.println("3. First fifty cities sorted by name (Insertion Sort)");
-		System.out.println("4. Last fifty cities sorted by name descending (Merge Sort)");
-		System.out.println("5. Fifty most populous cities in named state");
+		System.out.println("1. "+countName()+" least populous cities in USA");
+		System.out.println("2. "+countName()+" most populous cities in USA");
+		System.out.println("3. First "+countName().toLowerCase()+" cities sorted by name");
+		System.out.println("4. Last "+countName().toLowerCase()+" cities sorted by name descending");
+		System.out.println("5. "+countName()+" most populous cities in named state");
 		System.out.println("6. All cities matching a name sorted by population");
+		System.out.println("7. Population rollup by state or designation");
+		System.out.println("8. Cities in a population range, with a histogram");
 		System.out.println("9. Quit");
+		System.out.println("10. Load, sort and query statistics");
 	}
+
+    /** @param useSnapshot  true to load from and save to a binary snapshot of the data file */
+    public void setUseSnapshot(boolean useSnapshot) { this.useSnapshot = useSnapshot; }
+
+    /** @param offHeap  true to hold the cities outside the heap */
+    public void setOffHeap(boolean offHeap) { this.offHeap = offHeap; }
+
+    /** @param deltas   names of delta files to apply after loading, in order */
+    public void setDeltas(List<String> deltas) { this.deltas = deltas; }
+
+    /** @param watch    true to reload the data file whenever it changes */
+    public void setWatch(boolean watch) { this.watch = watch; }
+
+    /** @param bindAddress  the address --serve listens on, or null for the loopback address */
+    public void setBindAddress(String bindAddress) { this.bindAddress = bindAddress; }
+
+    /** @param format   the layout to write query results in */
+    public void setFormat(OutputFormat format) { writer = new ResultWriter(System.out, format); }
+
+    /** @return "Fifty", or the number of cities printed per query if that is not fifty */
+    public String countName()
+    {
+        return numCities == NUM_CITIES ? "Fifty" : ""+numCities;
+    }
 	
     /**
-     *  This method uses the FileUtil class to open the data file and reads and saves the contents in
-     *  the cities list. Uses string methods to split the line in parts, before saving it in the list.
+     *  This method loads the cities table and its sort-order indexes from the data file's
+     *  binary snapshot if there is a current one. Otherwise uses the CityLoader class to
+     *  memory-map the data file and load its lines into the cities table, builds the
+     *  sort-order indexes (or prepares them to be built lazily), and saves a new snapshot.
+     *  Then builds the state and city name lookups, and swaps the new CityDataset in.
      */
 	public void readAndLoadData()
 	{
-		Scanner inFile = FileUtils.openToRead(DATA_FILE);
-        String line = "";
-		int len = 0;
-        int count = 0;
-		
-		while(inFile.hasNext())
-		{
-			line = inFile.nextLine();
-			cities.add(new City());
-            len = cities.size()-1;
-
-            cities.get(len).setStateName(line.substring(0,line.indexOf("\t")));
-            line = line.substring(line.indexOf("\t")+1);
-
-            cities.get(len).setCityName(line.substring(0,line.indexOf("\t")));
-            line = line.substring(line.indexOf("\t")+1);
-
-            cities.get(len).setCityType(line.substring(0,line.indexOf("\t")));
-            line = line.substring(line.indexOf("\t")+1);
-
-            cities.get(len).setPopulation(Integer.parseInt(line.trim()));
-            count++;
-		}
-        System.out.println("\n"+count+" cities in database");
+        CityDataset loaded = null;
+        try
+        {
+            loaded = CityDataset.load(DATA_FILE, lazyIndexes, sortAlgorithm, useSnapshot, offHeap, cache);
+        }
+        catch(UncheckedIOException | IllegalStateException e)
+        {
+            System.err.println("ERROR: Cannot load "+DATA_FILE+": "+e.getMessage());
+            System.exit(-1);
+        }
+        dataset.set(loaded);
+        System.out.println("\n"+loaded.size()+" cities in database");
+        for(String delta : deltas)
+            applyDelta(delta);
 	}
 
+    /**
+     *  Applies the corrections in a delta file to the loaded data, swaps the changed
+     *  dataset in, and reports what changed and how long it took.
+     *
+     *  @param fileName name of the delta file
+     */
+    public void applyDelta(String fileName)
+    {
+        long start = System.nanoTime();
+        CityDelta delta = CityDelta.read(fileName);
+        CityDataset changed = delta.applyTo(dataset.get(), cache);
+        dataset.set(changed);
+        long millis = (System.nanoTime() - start) / 1000000;
+        System.out.println("Applied "+fileName+": "+delta.getUpdated()+" updated, "+delta.getAdded()+" added, "
+                            +delta.getRemoved()+" removed in "+millis+" milliseconds; "+changed.size()
+                            +" cities in database");
+    }
+
     /**
      *  This method gets user input for the category selection using the Prompt class. Handles bad input.
      *  Then uses switch statement to call appropriate method based on category inputted.
+     *  Quits if the input ends, such as at the end of a piped script.
      */
     public void getInput()
     {
         int category = Prompt.getInt("Enter selection");
-        while(category!=9 && (category<1 || category>6))
+        while(!Prompt.isEnded() && (category<1 || category>10))
         {
             System.out.println("Invalid input. Try again");
             category = Prompt.getInt("Enter selection");
         }
+        if(Prompt.isEnded())
+            category = 9;
         switch(category)
         {
             case 1:
                 leastPop();
 				break;
             case 2:
-                mostPop(false);
+                mostPop();
 				break;
             case 3:
                 nameSortIncreasing();
@@ -137,523 +374,245 @@ public class Population {
             case 6:
                 citiesMatchingName();
 				break;
+            case 7:
+                rollup();
+				break;
+            case 8:
+                populationRange();
+				break;
             case 9:
                 quit = true;
+				break;
+            case 10:
+                stats();
+				break;
         }
     }
 
     /**
-     *  Method to sort database by least population. Uses the selection sort method to sort list.
-     *  Prints data and the time taken to sort the database.
+     *  Prints the fifty least populous cities, read from the population ascending index.
+     *  Prints data and the time taken to read the index.
      */
     public void leastPop()
     {
-        System.out.println("\n\nFifty least populus cities");
-
-        long startMilliSec = System.currentTimeMillis();
-
-        for(int outer = cities.size(); outer>1; outer--)
-        {
-            int innerMax = 0;
-            for(int inner = 1; inner < outer; inner++)
-            {
-                if(cities.get(inner).compareTo(cities.get(innerMax)) > 0)
-                    innerMax = inner;
-            }
-            
-			swap(innerMax, outer-1);
-        }
-
-        long endMilliSec = System.currentTimeMillis();
-        printData();
-
-        System.out.println("Elapsed time "+(endMilliSec-startMilliSec)+" milliseconds");
+        System.out.println("\n\n"+countName()+" least populus cities");
+        printOrder(SortOrder.POPULATION_ASCENDING);
     }
 
     /**
-     *  Method to sort database by greatest population. Uses the merge sort method to sort list.
-     *  Calls the method to sort, prints data and the time taken to sort the database.
-     *  Before printing, checks to make sure that the method wasn't called from 
-     *  another method(method other than getInput()).
-     *
-     *  @param fromOther   indicates whether mostPop was called from another method
+     *  Prints the fifty most populous cities, read from the population descending index.
+     *  Prints data and the time taken to read the index.
      */
-    public void mostPop(boolean fromOther)
+    public void mostPop()
     {
-        System.out.println("\n\nFifty most populus cities");
-
-        int len = cities.size();
-        Integer[] temp = new Integer[len];
-        String[] city = new String[len];
-        String[] state = new String[len];
-        String[] type = new String[len];
-
-        long startMilliSec = System.currentTimeMillis();
-        sort(temp, city, state, type, 0, len-1);
-        long endMilliSec = System.currentTimeMillis();
-
-        if(!fromOther)
-        {
-            printData();
-            System.out.println("Elapsed time "+(endMilliSec-startMilliSec)+" milliseconds");
-        }
+        System.out.println("\n\n"+countName()+" most populus cities");
+        printOrder(SortOrder.POPULATION_DESCENDING);
     }
 
     /**
-     *  Recursive method to sort the list. Compares the elements at the end and start positions of the list.
-     *  Then decides whether the list needs to be swaped, or sorted and merged again.
-     *
-     *  Uses the start, middle, and end indices to determine the positions to merge the smaller arrays.
-     *
-     *  @param temp     temp array that stores population(later merged with other temp arrays)
-     *  @param city     temp array that stores city names(later merged with other temp arrays)
-     *  @param state    temp array that stores state names(later merged with other temp arrays)
-     *  @param type     temp array that stores city type(later merged with other temp arrays)
-     *  @param start    position to start merge
-     *  @param middle   middle position -> between start and end
-     *  @param end      position to end merge
+     *  Prints the first fifty cities in increasing name order(A-Z), read from the name ascending index.
+     *  Prints the data and time taken to read the index.
      */
-    public void sort(Integer[] temp, String[] city, String[] state, String[] type, int start, int end)
+    public void nameSortIncreasing()
     {
-        if(end - start < 2)
-		{
-			if(end > start && cities.get(end).compareTo(cities.get(start)) > 0)
-			{
-                swap(start, end);
-            }
-        }
-        else
-		{
-			int middle = (start+end)/2;
-			sort(temp, city, state, type, start, middle);
-			sort(temp, city, state, type, middle+1, end);
-			merge(temp, city, state, type, start, middle, end);
-		}
+        System.out.println("\n\n"+countName()+" cities sorted by name");
+        printOrder(SortOrder.NAME_ASCENDING);
     }
 
     /**
-     *  Uses the start, middle, and end indices to determine the positions to merge the smaller arrays.
-     *
-     *  @param temp     temp array that stores population(later merged with other temp arrays)
-     *  @param city     temp array that stores city names(later merged with other temp arrays)
-     *  @param state    temp array that stores state names(later merged with other temp arrays)
-     *  @param type     temp array that stores city type(later merged with other temp arrays)
-     *  @param start    position to start merge
-     *  @param middle   middle position -> between start and end
-     *  @param end      position to end merge
-     */
-    public void merge(Integer[] temp, String[] city, String[] state, String[] type, int start, int middle, int end)
-	{
-		int i = start;
-		int j = middle+1;
-		int k = start;
-		
-		while(i<=middle && j<=end)
-		{
-			if(cities.get(i).compareTo(cities.get(j)) > 0)
-			{
-				temp[k] = cities.get(i).getPopulation();
-                city[k] = cities.get(i).getCityName();
-                state[k] = cities.get(i).getStateName();
-                type[k] = cities.get(i).getCityType();
-
-				i++;
-			}
-			else
-			{
-				temp[k] = cities.get(j).getPopulation();
-                city[k] = cities.get(j).getCityName();
-                state[k] = cities.get(j).getStateName();
-                type[k] = cities.get(j).getCityType();
-
-				j++;
-			}
-			k++;
-		}
-		
-		while(i<=middle)
-		{
-			temp[k] = cities.get(i).getPopulation();
-            city[k] = cities.get(i).getCityName();
-            state[k] = cities.get(i).getStateName();
-            type[k] = cities.get(i).getCityType();
-
-			i++;
-			k++;
-		}
-		while(j<=end)
-		{
-			temp[k] = cities.get(j).getPopulation();
-            city[k] = cities.get(j).getCityName();
-            state[k] = cities.get(j).getStateName();
-            type[k] = cities.get(j).getCityType();
-
-			j++;
-			k++;
-		}
-		
-		for(k=start; k<=end; k++)
-		{
-            cities.get(k).setPopulation(temp[k]);
-            cities.get(k).setCityName(city[k]);
-            cities.get(k).setStateName(state[k]);
-            cities.get(k).setCityType(type[k]);
-		}
-	}
-
-    /**
-     *  Method sorts the database's cities in increasing name order(A-Z). Uses the insertion sort method to sort.
-     *  Prints the data and time taken for the sort.
+     *  Prints the first fifty cities in decreasing name order(Z-A), read from the name descending index.
+     *  Prints the data and time taken to read the index.
      */
-    public void nameSortIncreasing()
+    public void nameSortDecrease()
     {
-        System.out.println("\n\nFifty cities sorted by name");
-
-        long startMilliSec = System.currentTimeMillis();
-        for(int outer = 1; outer<cities.size(); outer++)
-        {
-            String tempCity = cities.get(outer).getCityName();
-            String tempState = cities.get(outer).getStateName();
-            String tempType = cities.get(outer).getCityType();
-            int tempPop = cities.get(outer).getPopulation();
-
-            int count = outer;
-
-            while(count>0 && tempCity.compareTo(cities.get(count-1).getCityName()) < 0)
-            {
-                cities.get(count).setCityName(cities.get(count-1).getCityName());
-                cities.get(count).setStateName(cities.get(count-1).getStateName());
-                cities.get(count).setCityType(cities.get(count-1).getCityType());
-                cities.get(count).setPopulation(cities.get(count-1).getPopulation());
-
-                count--;
-            }
-
-            cities.get(count).setCityName(tempCity);
-            cities.get(count).setStateName(tempState);
-            cities.get(count).setCityType(tempType);
-            cities.get(count).setPopulation(tempPop);
-        }
-
-        long endMilliSec = System.currentTimeMillis();
-
-        printData();
-        System.out.println("Elapsed time "+(endMilliSec-startMilliSec)+" milliseconds");
+        System.out.println("\n\n"+countName()+" cities sorted by name descending");
+        printOrder(SortOrder.NAME_DESCENDING);
     }
 
     /**
-     *  Sorts the database's cities in decreasing name order(Z-A). Uses the merge sort method to sort.
-     *  calls the sortArr method to sort and merge the list, before printing the database and time taken 
-     *  for the sort.
+     *  Finds and prints the first cities in an order, along with the time taken to find them.
+     *
+     *  @param order    the order to print the cities in
      */
-    public void nameSortDecrease()
+    public void printOrder(SortOrder order)
     {
-        System.out.println("\n\nFifty cities sorted by name descending");
-
-        int len = cities.size();
-        Integer[] temp = new Integer[len];
-        String[] city = new String[len];
-        String[] state = new String[len];
-        String[] type = new String[len];
-
+        CityDataset data = dataset.get();
         long startMilliSec = System.currentTimeMillis();
-        sortArr(temp, city, state, type, 0, len-1);
+        int[] rows = data.getQueries().top(order, numCities);
         long endMilliSec = System.currentTimeMillis();
 
-        printData();
+        printData(data, rows);
         System.out.println("Elapsed time "+(endMilliSec-startMilliSec)+" milliseconds");
     }
 
-    /**
-     *  Recursive method to sort the list. Compares the elements at the end and start positions of the list.
-     *  Then decides whether the list needs to be swaped, or sorted and merged again.
-     *
-     *  @param temp     temp array that stores population(later merged with other temp arrays)
-     *  @param city     temp array that stores city names(later merged with other temp arrays)
-     *  @param state    temp array that stores state names(later merged with other temp arrays)
-     *  @param type     temp array that stores city type(later merged with other temp arrays)
-     *  @param start    position to start merge
-     *  @param middle   middle position -> between start and end
-     *  @param end      position to end merge
-     */
-    public void sortArr(Integer[] temp, String[] city, String[] state, String[] type, int start, int end)
-    {
-        if(end - start < 2)
-		{
-			if(end > start && cities.get(end).getCityName().compareTo(cities.get(start).getCityName()) > 0)
-			{
-                swap(start, end);
-            }
-        }
-        else
-		{
-			int middle = (start+end)/2;
-			sortArr(temp, city, state, type, start, middle);
-			sortArr(temp, city, state, type, middle+1, end);
-			mergeArr(temp, city, state, type, start, middle, end);
-		}
-    }
-
-    /**
-     *  Uses the start, middle, and end indices to determine the positions to merge the smaller arrays.
-     *
-     *  @param temp     temp array that stores population(later merged with other temp arrays)
-     *  @param city     temp array that stores city names(later merged with other temp arrays)
-     *  @param state    temp array that stores state names(later merged with other temp arrays)
-     *  @param type     temp array that stores city type(later merged with other temp arrays)
-     *  @param start    position to start merge
-     *  @param middle   middle position -> between start and end
-     *  @param end      position to end merge
-     */
-    public void mergeArr(Integer[] temp, String[] city, String[] state, String[] type, int start, int middle, int end)
-	{
-		int i = start;
-		int j = middle+1;
-		int k = start;
-		
-		while(i<=middle && j<=end)
-		{
-			if(cities.get(i).getCityName().compareTo(cities.get(j).getCityName()) > 0)
-			{
-				temp[k] = (cities.get(i).getPopulation());
-                city[k] = cities.get(i).getCityName();
-                state[k] = cities.get(i).getStateName();
-                type[k] = cities.get(i).getCityType();
-
-				i++;
-			}
-			else
-			{
-				temp[k] = cities.get(j).getPopulation();
-                city[k] = cities.get(j).getCityName();
-                state[k] = cities.get(j).getStateName();
-                type[k] = cities.get(j).getCityType();
-
-				j++;
-			}
-			k++;
-		}
-		
-		while(i<=middle)
-		{
-			temp[k] = cities.get(i).getPopulation();
-            city[k] = cities.get(i).getCityName();
-            state[k] = cities.get(i).getStateName();
-            type[k] = cities.get(i).getCityType();
-
-			i++;
-			k++;
-		}
-		while(j<=end)
-		{
-			temp[k] = cities.get(j).getPopulation();
-            city[k] = cities.get(j).getCityName();
-            state[k] = cities.get(j).getStateName();
-            type[k] = cities.get(j).getCityType();
-
-			j++;
-			k++;
-		}
-		
-		for(k=start; k<=end; k++)
-		{
-            cities.get(k).setPopulation(temp[k]);
-            cities.get(k).setCityName(city[k]);
-            cities.get(k).setStateName(state[k]);
-            cities.get(k).setCityType(type[k]);
-		}
-	}
-
     /**
      *  Calls a method that gets user input for the state they want to sort by, and gets a string returned
-     *  with that state. Then, calls the mostPop method to sort the cities database by most population,
-     *  and calls the method to print the database.
+     *  with that state. Then calls the method to print that state's cities from the population
+     *  descending index.
      */
     public void mostPopInState()
     {
         String state = getStateData();
+        if(state == null)
+            return;
 
-        System.out.println("\n\nFifty most populus cities in "+state);
-
-        mostPop(true);
+        System.out.println("\n\n"+countName()+" most populus cities in "+state);
         printStateData(state);
     }
 
     /**
      *  Calls a method that gets user input for the city they want to sort by, and gets a string returned
-     *  with that city. Then, calls the mostPop method to sort the cities database by most population,
-     *  and calls the method to print the database.
+     *  with that city. Then calls the method to print the matching cities from the population
+     *  descending index.
      */
     public void citiesMatchingName()
     {
         String city = getCityData();
+        if(city == null)
+            return;
 
         System.out.println("\n\nCity "+city+" by population");
-        mostPop(true);
-
         printCityData(city);
     }
 
     /**
-     *  This method iterates through the database to first make sure that the inputted state exists.
-     *  Then, it adds all the data from the database for the specific state, to the new created list.
-     *
-     *  @return state   name of the state entered by the user
+     *  Asks whether to group by state or designation, then prints each group's city
+     *  count, total, average, median, smallest and largest population, and the share
+     *  of its population in its ten most populous cities.
      */
-    public String getStateData()
+    public void rollup()
     {
-        String state = Prompt.getString("\nEnter state name (ie. Alabama)");
-        boolean stateIsValid = false;
-        int count = 0;
+        int choice = Prompt.getInt("\nGroup by (1) state or (2) designation", 1, 2);
+        GroupBy by = choice == 1 ? GroupBy.STATE : GroupBy.DESIGNATION;
 
-        while(count<cities.size() && !stateIsValid)
-        {
-            for(int i=0; i<cities.size(); i++)
-            {
-                if(cities.get(i).getStateName().equalsIgnoreCase(state))
-                    stateIsValid = true;
-            }
-
-            if(!stateIsValid)
-            {
-                System.out.println("ERROR: "+state+" is not valid");
-                state = Prompt.getString("Enter state name (ie. Alabama)");
-            }
-        }
+        System.out.println("\n\nPopulation by "+by.name().toLowerCase());
+        long startMilliSec = System.currentTimeMillis();
+        GroupStats[] groups = dataset.get().getQueries().rollup(by);
+        long endMilliSec = System.currentTimeMillis();
 
-        return state;
+        writer.writeRollup(groups, 10, null);
+		System.out.println("\n");
+        System.out.println("Elapsed time "+(endMilliSec-startMilliSec)+" milliseconds");
     }
 
     /**
-     *  Takes elements at the innerMax and outer positions and swaps them in the cities database.
-     *
-     *  @param innerMax     index of first element to swap
-     *  @param outer        index of second element to swap
+     *  Asks for a smallest and largest population, then prints how many cities fall in
+     *  that range, the least populous of them, its median, 10th and 90th percentiles,
+     *  and a histogram of the range in ten buckets, all from the population range index.
      */
-    public void swap(int innerMax, int outer)
+    public void populationRange()
     {
-        String tempState = cities.get(innerMax).getStateName();
-        cities.get(innerMax).setStateName(cities.get(outer).getStateName());
-        cities.get(outer).setStateName(tempState);
-
-        String tempCity = cities.get(innerMax).getCityName();
-        cities.get(innerMax).setCityName(cities.get(outer).getCityName());
-        cities.get(outer).setCityName(tempCity);
+        int min = Prompt.getInt("\nSmallest population", 0, Integer.MAX_VALUE);
+        int max = Prompt.getInt("Largest population", min, Integer.MAX_VALUE);
 
-        String tempType = cities.get(innerMax).getCityType();
-        cities.get(innerMax).setCityType(cities.get(outer).getCityType());
-        cities.get(outer).setCityType(tempType);
+        CityDataset data = dataset.get();
+        long startMilliSec = System.currentTimeMillis();
+        PopulationRangeIndex ranges = data.getQueries().getRanges();
+        int count = ranges.count(min, max);
+        int[] rows = ranges.between(min, max, false, numCities);
+        PopulationRangeIndex.Bucket[] histogram = ranges.histogram(min, max, 10);
+        long endMilliSec = System.currentTimeMillis();
 
-        Integer temp = cities.get(innerMax).getPopulation();
-        cities.get(innerMax).setPopulation(cities.get(outer).getPopulation());
-        cities.get(outer).setPopulation(temp);
+        System.out.println("\n\n"+count+" cities with population from "+min+" to "+max);
+        printData(data, rows);
+        if(count > 0)
+        {
+            System.out.println("Median "+ranges.percentile(min, max, 50)+", 10th percentile "
+                                +ranges.percentile(min, max, 10)+", 90th percentile "
+                                +ranges.percentile(min, max, 90)+"\n");
+            writer.writeHistogram(histogram, null);
+            System.out.println("\n");
+        }
+        System.out.println("Elapsed time "+(endMilliSec-startMilliSec)+" milliseconds");
+    }
 
+    /**
+     *  Prints how long each phase of loading and querying has taken so far, the sorts'
+     *  comparison, swap and merge counts, the bytes allocated per query, and the query
+     *  cache's hit rate.
+     */
+    public void stats()
+    {
+        System.out.println("\n\nLoad, sort and query statistics");
+        System.out.println(Metrics.summary(cache));
     }
 
     /**
-     * This method iterates through the database to first make sure that the inputted city exists.
-     * Then, it adds all the data from the database for the specific city, to the new created list.
+     *  This method gets a state name from the user, and checks it against the state lookup until
+     *  the user enters a state that exists.
      *
-     * @return city     name of the city entered by user
+     *  @return state   name of the state entered by the user, or null if the input ended
      */
-    public String getCityData()
+    public String getStateData()
     {
-        String city = Prompt.getString("\nEnter city name");
-        boolean cityIsValid = false;
-        int count = 0;
-        numMatchingCities = 0;
+        String state = Prompt.getString("\nEnter state name (ie. Alabama)");
 
-        while(count<cities.size() && !cityIsValid)
+        while(!Prompt.isEnded() && !dataset.get().getQueries().hasState(state))
         {
-            for(int i=0; i<cities.size(); i++)
-            {
-                if(cities.get(i).getCityName().equalsIgnoreCase(city))
-                    cityIsValid = true;
-            }
-
-            if(!cityIsValid)
-            {
-                System.out.println("ERROR: "+city+" is not valid");
-                city = Prompt.getString("\nEnter city name");
-            }
+            System.out.println("ERROR: "+state+" is not valid");
+            state = Prompt.getString("Enter state name (ie. Alabama)");
         }
 
-        count = 0;
+        return state;
+    }
 
-        while(count<cities.size())
+    /**
+     * This method gets a city name from the user, and checks it against the city lookup until
+     * the user enters a city that exists. If it does not exist, suggests city names that start
+     * with what the user typed. Saves the number of cities with that name.
+     *
+     * @return city     name of city entered by user, or null if the input ended
+     */
+    public String getCityData()
+    {
+        String city = Prompt.getString("\nEnter city name");
+
+        while(!Prompt.isEnded() && !dataset.get().getLookup().hasCity(city))
         {
-            if(cities.get(count).getCityName().equalsIgnoreCase(city))
-            {
-                numMatchingCities++;
-            }
-            count++;
+            System.out.println("ERROR: "+city+" is not valid");
+            String[] suggestions = dataset.get().getLookup().namesStartingWith(city, 5);
+            if(suggestions.length > 0)
+                System.out.println("Did you mean: "+String.join(", ", suggestions));
+            city = Prompt.getString("\nEnter city name");
         }
+        if(Prompt.isEnded())
+            return null;
 
+        numMatchingCities = dataset.get().getQueries().countMatchingName(city);
         return city;
     }
 
     /**
-     *  Iterates through the cities list and print data from database
+     *  Writes a list of rows from the database with the result writer
+     *
+     *  @param data     the dataset the rows were found in
+     *  @param rows     the row ids in the order to print them
      */
-    public void printData()
+    public void printData(CityDataset data, int[] rows)
     {
-        System.out.printf("    %-22s %-22s %-12s %12s\n", "State", "City", "Type", "Population");
-        for(int i=0; i<NUM_CITIES; i++)
-        {
-            if(i<9)
-                System.out.print(" ");
-            System.out.println((i+1)+": "+cities.get(i).toString());
-        }
+        writer.writeResult(data.getTable(), rows, null);
 		System.out.println("\n");
     }
 
     /**
-     *  Iterates through state list and prints database
+     *  Prints the most populous cities of a state
      *
      *  @param state    name of state inputted by user
      */
     public void printStateData(String state)
     {
-        System.out.printf("    %-22s %-22s %-12s %12s\n", "State", "City", "Type", "Population");
-        int count = 0;
-        int loops = 0;
-
-       while(count<NUM_CITIES && loops<cities.size())
-        {
-            if(cities.get(loops).getStateName().equalsIgnoreCase(state))
-            {
-                if(count<9)
-                    System.out.print(" ");
-                System.out.println((count+1)+": "+cities.get(loops).toString());
-                count++;
-            }
-            loops++;
-        }
-		System.out.println("\n");
+        CityDataset data = dataset.get();
+        printData(data, data.getQueries().mostPopulousInState(state, numCities));
     }
 
     /**
-     *  Iterates through city list and prints database
+     *  Prints all the cities matching a name by population
      *
      *  @param city     name of city inputted by user
      */
     public void printCityData(String city)
     {
-        System.out.printf("    %-22s %-22s %-12s %12s\n", "State", "City", "Type", "Population");
-        int count = 0;
-        int loops = 0;
-
-        while(count<numMatchingCities)
-        {
-            if(cities.get(loops).getCityName().equalsIgnoreCase(city))
-            {
-                if(count<9)
-                    System.out.print(" ");
-                System.out.println((count+1)+": "+cities.get(loops).toString());
-                count++;
-            }
-            loops++;
-        }
-		System.out.println("\n");
+        CityDataset data = dataset.get();
+        printData(data, data.getQueries().matchingName(city, numMatchingCities));
     }
 }
\ No newline at end of file
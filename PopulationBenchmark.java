@@ -0,0 +1,278 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+/**
+ *	PopulationBenchmark - Micro-benchmarks for loading, the six menu queries and the
+ *	individual sort routines, run against synthetic datasets of different sizes.
+ *
+ *	Each benchmark is warmed up before it is measured, so the JIT has compiled it,
+ *	and is then timed with System.nanoTime over several iterations. The report gives
+ *	the mean and best time per operation, and the bytes allocated per operation by
+ *	the benchmark thread (through com.sun.management.ThreadMXBean). Allocation done
+ *	on ForkJoinPool or loader worker threads is not counted.
+ *
+ *	Usage: java PopulationBenchmark [--filter text] [--iterations n] [size ...]
+ *	The default sizes are 1000, 10000, 100000 and 1000000 rows; pass 10000000 for the
+ *	largest dataset. The O(n^2) selection and insertion sorts only run up to
+ *	QUADRATIC_LIMIT rows.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class PopulationBenchmark
+{
+    private static final int QUADRATIC_LIMIT = 20000;  // largest size the O(n^2) sorts run on
+    private static final int WARMUP_MILLIS = 500;      // warmup time per benchmark
+    private static final int K = 50;                   // rows per "fifty" query
+
+    private static volatile long sink;   // keeps results alive so the JIT can't drop the work
+
+    private final String filter;   // only run benchmarks whose name contains this
+    private final int iterations;  // measured iterations per benchmark
+    private final com.sun.management.ThreadMXBean threads;
+
+    /**
+     *  @param filter       only run benchmarks whose name contains this
+     *  @param iterations   measured iterations per benchmark
+     */
+    public PopulationBenchmark(String filter, int iterations)
+    {
+        this.filter = filter;
+        this.iterations = iterations;
+        threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        String filter = "";
+        int iterations = 10;
+        List<Integer> sizes = new ArrayList<Integer>();
+        for(int i=0; i<args.length; i++)
+        {
+            if(args[i].equals("--filter") && i+1 < args.length)
+                filter = args[++i];
+            else if(args[i].equals("--iterations") && i+1 < args.length)
+                iterations = Integer.parseInt(args[++i]);
+            else
+                sizes.add(Integer.parseInt(args[i]));
+        }
+        if(sizes.isEmpty())
+            sizes.addAll(Arrays.asList(1000, 10000, 100000, 1000000));
+
+        PopulationBenchmark bench = new PopulationBenchmark(filter, iterations);
+        System.out.printf("%-28s %10s %14s %14s %14s\n", "Benchmark", "Rows", "Mean ns/op",
+                            "Best ns/op", "Alloc B/op");
+        for(int size : sizes)
+            bench.runAll(size);
+    }
+
+    /**
+     *  Runs every benchmark against one synthetic dataset.
+     *
+     *  @param size     number of rows in the dataset
+     */
+    public void runAll(int size) throws IOException
+    {
+        File data = File.createTempFile("popbench", ".txt");
+        data.deleteOnExit();
+        new File(CitySnapshot.snapshotFile(data.getPath())).deleteOnExit();
+        writeDataset(data, size, new Random(size));
+
+        String file = data.getPath();
+        CityTable table = new CityTable();
+        CityLoader.load(file, table);
+        SortIndexes indexes = new SortIndexes(table, false);
+        CityLookup lookup = new CityLookup(table);
+        CityQueries queries = new CityQueries(table, indexes, lookup, new QueryCache(0, 0));
+        CityQueries cached = new CityQueries(table, indexes, lookup);
+        CitySnapshot.write(file, table, indexes);
+
+        String state = table.getStateName(0);
+        String city = table.getCityName(0);
+
+        run("load text (mapped)", size, () -> CityLoader.load(file, new CityTable(), 1));
+        run("load text (parallel)", size, () -> CityLoader.load(file, new CityTable()));
+        run("load snapshot", size, () -> CitySnapshot.read(file, true, SortAlgorithm.ADAPTIVE, false).getTable().size());
+        run("load snapshot (off-heap)", size, () -> CitySnapshot.read(file, true, SortAlgorithm.ADAPTIVE, true).getTable().size());
+        run("build indexes", size, () -> new SortIndexes(table, false).rows(SortOrder.NAME_DESCENDING).length);
+        run("build lookup", size, () -> new CityLookup(table).stateRows(state).length);
+        CityTable base = table.copy();
+        CityDataset dataset = new CityDataset(base, new SortIndexes(base, false), new QueryCache());
+        CityDelta delta = new CityDelta();
+        for(int i=0; i<100; i++)
+        {
+            int row = (int)((long)i * size / 100);
+            delta.upsert(table.getStateName(row), table.getCityName(row), table.getCityType(row), i);
+        }
+        run("apply delta (100 upserts)", size, () -> delta.applyTo(dataset, new QueryCache()).size());
+
+        run("query 1 least populous", size, () -> queries.top(SortOrder.POPULATION_ASCENDING, K).length);
+        run("query 2 most populous", size, () -> queries.top(SortOrder.POPULATION_DESCENDING, K).length);
+        run("query 3 name ascending", size, () -> queries.top(SortOrder.NAME_ASCENDING, K).length);
+        run("query 4 name descending", size, () -> queries.top(SortOrder.NAME_DESCENDING, K).length);
+        run("query 5 state", size, () -> queries.mostPopulousInState(state, K).length);
+        run("query 6 city", size, () -> queries.matchingName(city, Integer.MAX_VALUE).length);
+        CityQuery villages = new CityQuery().inStates(state).withDesignation("village")
+                                .populationBetween(10000, 500000).limit(K);
+        run("query find (state, type, pop)", size, () -> queries.select(villages).length);
+        PopulationRangeIndex ranges = queries.getRanges();
+        run("query range (50k-100k)", size, () -> ranges.between(50000, 100000, false, K).length);
+        run("histogram (10 buckets)", size, () -> ranges.histogram(0, Integer.MAX_VALUE, 10).length);
+        CityAggregator aggregator = new CityAggregator();
+        run("aggregate state", size, () -> aggregator.aggregate(table, null, GroupBy.STATE, false).length);
+        run("aggregate state (median)", size, () -> aggregator.aggregate(table, null, GroupBy.STATE, true).length);
+        int[] ascending = indexes.rows(SortOrder.POPULATION_ASCENDING);
+        run("aggregate state (median, idx)", size, () -> aggregator.aggregate(table, ascending, GroupBy.STATE, true).length);
+        run("query 5 state (cached)", size, () -> cached.mostPopulousInState(state, K).length);
+        run("query 6 city (cached)", size, () -> cached.matchingName(city, Integer.MAX_VALUE).length);
+
+        int[] all = queries.top(SortOrder.POPULATION_DESCENDING, Math.min(size, 10000));
+        ResultWriter table10k = new ResultWriter(OutputStream.nullOutputStream(), OutputFormat.TABLE);
+        ResultWriter csv10k = new ResultWriter(OutputStream.nullOutputStream(), OutputFormat.CSV);
+        run("write results (table)", size, () -> { table10k.writeResult(table, all, null); return all.length; });
+        run("write results (csv)", size, () -> { csv10k.writeResult(table, all, null); return all.length; });
+
+        RowComparator byPopulation = SortOrder.POPULATION_ASCENDING.comparator(table);
+        RowComparator byName = SortOrder.NAME_ASCENDING.comparator(table);
+        int[] rows = CitySorts.identity(size);
+        ParallelMergeSort parallel = new ParallelMergeSort();
+
+        if(size <= QUADRATIC_LIMIT)
+        {
+            run("sort selection", size, () -> { shuffle(rows); CitySorts.selectionSort(rows, byPopulation); return rows[0]; });
+            run("sort insertion", size, () -> { shuffle(rows); CitySorts.insertionSort(rows, 0, size-1, byName); return rows[0]; });
+        }
+        run("sort merge (population)", size, () -> { shuffle(rows); CitySorts.mergeSort(rows, byPopulation); return rows[0]; });
+        run("sort merge (name)", size, () -> { shuffle(rows); CitySorts.mergeSort(rows, byName); return rows[0]; });
+        run("sort parallel (population)", size, () -> { shuffle(rows); parallel.sort(rows, byPopulation); return rows[0]; });
+        run("sort parallel (name)", size, () -> { shuffle(rows); parallel.sort(rows, byName); return rows[0]; });
+        run("sort radix (population)", size, () -> { shuffle(rows); RadixSort.sortByPopulation(table, rows); return rows[0]; });
+        run("sort radix (name)", size, () -> { shuffle(rows); RadixSort.sortByName(table, rows, false); return rows[0]; });
+        CityTable heapCopy = table.copy();
+        heapCopy.freeze();
+        CityTable offHeap = heapCopy.offHeap();
+        RowComparator offHeapByPopulation = SortOrder.POPULATION_ASCENDING.comparator(offHeap);
+        run("sort parallel (pop, off-heap)", size, () -> { shuffle(rows); parallel.sort(rows, offHeapByPopulation); return rows[0]; });
+        run("sort radix (pop, off-heap)", size, () -> { shuffle(rows); RadixSort.sortByPopulation(offHeap, rows); return rows[0]; });
+        SortStrategy adaptive = SortAlgorithm.ADAPTIVE.create();
+        SortStrategy natural = SortAlgorithm.NATURAL.create();
+        int[] sorted = indexes.rows(SortOrder.POPULATION_ASCENDING);
+        run("sort adaptive (shuffled)", size, () -> { shuffle(rows); adaptive.sort(table, rows, SortOrder.POPULATION_ASCENDING); return rows[0]; });
+        run("sort adaptive (sorted)", size, () -> { System.arraycopy(sorted, 0, rows, 0, size); adaptive.sort(table, rows, SortOrder.POPULATION_ASCENDING); return rows[0]; });
+        run("sort adaptive (nearly sorted)", size, () -> { perturb(sorted, rows); adaptive.sort(table, rows, SortOrder.POPULATION_ASCENDING); return rows[0]; });
+        run("sort natural (nearly sorted)", size, () -> { perturb(sorted, rows); natural.sort(table, rows, SortOrder.POPULATION_ASCENDING); return rows[0]; });
+        run("sort adaptive (reversed)", size, () -> { System.arraycopy(sorted, 0, rows, 0, size); CitySorts.reverse(rows); adaptive.sort(table, rows, SortOrder.POPULATION_ASCENDING); return rows[0]; });
+        File sortedFile = File.createTempFile("popbench-sorted", ".txt");
+        sortedFile.deleteOnExit();
+        ExternalSort external = new ExternalSort(SortOrder.POPULATION_DESCENDING, SortAlgorithm.ADAPTIVE,
+                                                    ExternalSort.MIN_RUN_BYTES);
+        run("sort external (64 KB runs)", size, () -> {
+            try
+            {
+                return external.sort(file, sortedFile.getPath());
+            }
+            catch(IOException e)
+            {
+                throw new java.io.UncheckedIOException(e);
+            }
+        });
+        run("select top-k (population)", size, () -> TopKSelector.selectAll(size, byPopulation, K).length);
+        run("shuffle (baseline)", size, () -> { shuffle(rows); return rows[0]; });
+    }
+
+    /**
+     *  Warms up and then measures one benchmark, and prints its line of the report.
+     *
+     *  @param name     name of the benchmark
+     *  @param size     number of rows in the dataset
+     *  @param op       the operation to measure; its result is kept alive
+     */
+    public void run(String name, int size, IntSupplier op)
+    {
+        if(!name.contains(filter))
+            return;
+
+        long warmupEnd = System.nanoTime() + WARMUP_MILLIS * 1000000L;
+        int warmups = 0;
+        while(System.nanoTime() < warmupEnd || warmups < 2)
+        {
+            sink += op.getAsInt();
+            warmups++;
+        }
+
+        long thread = Thread.currentThread().getId();
+        long total = 0;
+        long best = Long.MAX_VALUE;
+        long allocStart = threads.getThreadAllocatedBytes(thread);
+        for(int i=0; i<iterations; i++)
+        {
+            long start = System.nanoTime();
+            sink += op.getAsInt();
+            long elapsed = System.nanoTime() - start;
+            total += elapsed;
+            best = Math.min(best, elapsed);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - allocStart;
+
+        System.out.printf("%-28s %10d %,14d %,14d %,14d\n", name, size, total / iterations, best,
+                            allocated / iterations);
+    }
+
+    /**
+     *  Writes a synthetic data file: a few states and designations, and many repeated
+     *  city names, like the real extract.
+     *
+     *  @param file     the file to write
+     *  @param size     number of lines to write
+     *  @param random   source of the synthetic values
+     */
+    public static void writeDataset(File file, int size, Random random)
+    {
+        String[] types = { "city", "town", "village", "CDP", "borough" };
+        PrintWriter out = FileUtils.openToWrite(file.getPath());
+        for(int i=0; i<size; i++)
+        {
+            out.print("State " + random.nextInt(50));
+            out.print('\t');
+            out.print("City " + random.nextInt(Math.max(size / 4, 1)));
+            out.print('\t');
+            out.print(types[random.nextInt(types.length)]);
+            out.print('\t');
+            out.print(random.nextInt(1 << random.nextInt(24)));
+            out.print('\n');
+        }
+        out.close();
+    }
+
+    /**
+     *  Copies sorted rows and swaps one pair in every thousand rows with a fixed seed, so
+     *  the copy is nearly sorted and every sort starts from the same order.
+     *
+     *  @param sorted   the sorted rows
+     *  @param rows     where to put the nearly sorted copy
+     */
+    private static void perturb(int[] sorted, int[] rows)
+    {
+        System.arraycopy(sorted, 0, rows, 0, rows.length);
+        Random random = new Random(42);
+        for(int i=0; i<rows.length/1000; i++)
+            CitySorts.swap(rows, random.nextInt(rows.length), random.nextInt(rows.length));
+    }
+
+    /** Shuffles rows with a fixed seed, so every sort starts from the same order */
+    private static void shuffle(int[] rows)
+    {
+        Random random = new Random(42);
+        for(int i=rows.length-1; i>0; i--)
+            CitySorts.swap(rows, i, random.nextInt(i+1));
+    }
+}
@@ -0,0 +1,194 @@
+import java.util.Arrays;
+
+/**
+ *	PopulationRangeIndex - Answers population range queries, such as every city with
+ *	50,000 to 100,000 people, and describes how population is distributed.
+ *
+ *	The index is the population ascending index from SortIndexes with a sorted copy
+ *	of the populations beside it, so a binary search compares ints in one array
+ *	instead of reaching into the table for every probe. A range is two binary
+ *	searches and its cities are a slice of the index, so a range query costs
+ *	O(log n + k) for k cities; a percentile is one array read, and a histogram of
+ *	b buckets costs at most b binary searches.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public final class PopulationRangeIndex
+{
+    private final int[] rows;          // row ids in population ascending order; not modified
+    private final int[] populations;   // populations[i] is the population of rows[i]
+
+    /**
+     *  @param table        the table the rows belong to
+     *  @param ascending    every row id in population ascending order; kept, not copied
+     */
+    public PopulationRangeIndex(CityTable table, int[] ascending)
+    {
+        rows = ascending;
+        populations = new int[ascending.length];
+        for(int i=0; i<ascending.length; i++)
+            populations[i] = table.getPopulation(ascending[i]);
+    }
+
+    /** @return the number of cities in the index */
+    public int size() { return rows.length; }
+
+    /**
+     *  @param pop      a population
+     *  @return         the position of the first city with at least pop people, or the
+     *                  index size if there is none
+     */
+    public int firstAtLeast(long pop)
+    {
+        int low = 0;
+        int high = populations.length;
+        while(low < high)
+        {
+            int middle = (low+high) >>> 1;
+            if(populations[middle] < pop)
+                low = middle+1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     *  @param min      the smallest population in the range
+     *  @param max      the largest population in the range
+     *  @return         the number of cities with min to max people
+     */
+    public int count(long min, long max)
+    {
+        int from = firstAtLeast(min);
+        return Math.max(0, firstAtLeast(max + 1) - from);
+    }
+
+    /**
+     *  @param min          the smallest population in the range
+     *  @param max          the largest population in the range
+     *  @param descending   true for the most populous first, false for the least
+     *  @param limit        the most rows to return
+     *  @return             up to limit row ids of the cities with min to max people
+     */
+    public int[] between(long min, long max, boolean descending, int limit)
+    {
+        int from = firstAtLeast(min);
+        int to = Math.max(from, firstAtLeast(max + 1));
+        int length = Math.min(limit, to - from);
+        if(!descending)
+            return Arrays.copyOfRange(rows, from, from + length);
+
+        int[] result = new int[length];
+        for(int i=0; i<length; i++)
+            result[i] = rows[to - 1 - i];
+        return result;
+    }
+
+    /**
+     *  Finds a percentile of the cities in a range by the nearest-rank method.
+     *
+     *  @param min      the smallest population in the range
+     *  @param max      the largest population in the range
+     *  @param p        the percentile, from 0 to 100
+     *  @return         the smallest population at or above p percent of the cities in
+     *                  the range, or 0 if the range holds no cities
+     */
+    public int percentile(long min, long max, double p)
+    {
+        int from = firstAtLeast(min);
+        int count = Math.max(0, firstAtLeast(max + 1) - from);
+        if(count == 0)
+            return 0;
+        int rank = (int)Math.ceil(p / 100 * count);
+        return populations[from + Math.min(Math.max(rank, 1), count) - 1];
+    }
+
+    /**
+     *  Splits a population range into buckets of equal width and counts the cities in
+     *  each. Buckets with no cities are kept, so the buckets cover the whole range.
+     *
+     *  @param min      the smallest population in the range
+     *  @param max      the largest population in the range
+     *  @param buckets  the number of buckets
+     *  @return         the buckets, least populous first
+     */
+    public Bucket[] histogram(long min, long max, int buckets)
+    {
+        if(populations.length > 0)
+        {
+            min = Math.max(min, populations[0]);
+            max = Math.min(max, populations[populations.length - 1]);
+        }
+        if(max < min)
+            return new Bucket[0];
+        buckets = (int)Math.max(1, Math.min(buckets, max - min + 1));
+
+        Bucket[] histogram = new Bucket[buckets];
+        long width = max - min + 1;
+        int start = firstAtLeast(min);
+        for(int i=0; i<buckets; i++)
+        {
+            long low = min + width * i / buckets;
+            long high = min + width * (i+1) / buckets - 1;
+            int end = firstAtLeast(high + 1);
+            histogram[i] = new Bucket(low, high, end - start);
+            start = end;
+        }
+        return histogram;
+    }
+
+    /**
+     *  Splits the cities in a population range into buckets holding the same number of
+     *  cities, so the bucket bounds are the range's percentiles: ten buckets give the
+     *  deciles. A bucket's bounds are the populations of its first and last city.
+     *
+     *  @param min      the smallest population in the range
+     *  @param max      the largest population in the range
+     *  @param buckets  the number of buckets
+     *  @return         the buckets, least populous first; none if the range is empty
+     */
+    public Bucket[] quantiles(long min, long max, int buckets)
+    {
+        int from = firstAtLeast(min);
+        int count = Math.max(0, firstAtLeast(max + 1) - from);
+        if(count == 0)
+            return new Bucket[0];
+        buckets = Math.max(1, Math.min(buckets, count));
+
+        Bucket[] histogram = new Bucket[buckets];
+        for(int i=0; i<buckets; i++)
+        {
+            int start = from + (int)((long)count * i / buckets);
+            int end = from + (int)((long)count * (i+1) / buckets);
+            histogram[i] = new Bucket(populations[start], populations[end - 1], end - start);
+        }
+        return histogram;
+    }
+
+    /** One bucket of a histogram: the cities with low to high people */
+    public static final class Bucket
+    {
+        private final long low;
+        private final long high;
+        private final int count;
+
+        /**
+         *  @param low      the smallest population in the bucket
+         *  @param high     the largest population in the bucket
+         *  @param count    the number of cities in the bucket
+         */
+        public Bucket(long low, long high, int count)
+        {
+            this.low = low;
+            this.high = high;
+            this.count = count;
+        }
+
+        /**	Accessor methods */
+        public long getLow() { return low; }
+        public long getHigh() { return high; }
+        public int getCount() { return count; }
+    }
+}
@@ -0,0 +1,276 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ *	PopulationServer - Serves the Population menu queries over HTTP, from one
+ *	loaded dataset shared by every request.
+ *
+ *	Every query goes through CityQueries, which only reads the table, its indexes and
+ *	its lookups, so requests run concurrently without locking each other out. Each
+ *	request fetches the current CityDataset once and answers entirely from it.
+ *	Requests run on their own virtual threads when the Java runtime has them (Java 21
+ *	and later), and on a cached thread pool otherwise.
+ *
+ *	The server listens on the loopback address unless it is given another one, so
+ *	the queries and /metrics are only reachable from other machines when asked for.
+ *
+ *	GET requests, each with an optional limit=N (the --limit option by default) and
+ *	format=table|tsv|csv|json (json by default):
+ *		/least                  least populous cities
+ *		/most                   most populous cities
+ *		/name-ascending         cities sorted by name, A to Z
+ *		/name-descending        cities sorted by name, Z to A
+ *		/state?name=NAME        most populous cities in a state
+ *		/city?name=NAME         cities with a name, most populous first (all by default)
+ *		/rollup?by=GROUP        population per state, designation or all, with the
+ *		                        share held by the top=N cities of each (ten by default)
+ *		/find?FILTER=VALUE&...  cities passing every filter given: state (a comma list),
+ *		                        type, pop=MIN..MAX, name, prefix, regex, and order=pop|name
+ *		                        with an optional -asc or -desc (see CityQuery.parse)
+ *		/metrics                the Metrics, in the Prometheus text format
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class PopulationServer
+{
+    private final Supplier<CityDataset> datasets;   // the current dataset
+    private final int defaultLimit;   // rows per query when the request gives no limit
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     *  Creates a server on the loopback address; start() starts it.
+     *
+     *  @param datasets     supplies the current dataset to answer each request from
+     *  @param defaultLimit rows per query when the request gives no limit
+     *  @param port         the port to listen on; 0 picks a free port
+     *  @throws IOException if the port cannot be bound
+     */
+    public PopulationServer(Supplier<CityDataset> datasets, int defaultLimit, int port) throws IOException
+    {
+        this(datasets, defaultLimit, null, port);
+    }
+
+    /**
+     *  Creates the server; start() starts it.
+     *
+     *  @param datasets     supplies the current dataset to answer each request from
+     *  @param defaultLimit rows per query when the request gives no limit
+     *  @param host         the address to listen on, such as 0.0.0.0 for every
+     *                      interface, or null for the loopback address
+     *  @param port         the port to listen on; 0 picks a free port
+     *  @throws IOException if the address is unknown or the port cannot be bound
+     */
+    public PopulationServer(Supplier<CityDataset> datasets, int defaultLimit, String host, int port)
+                            throws IOException
+    {
+        this.datasets = datasets;
+        this.defaultLimit = defaultLimit;
+        InetAddress address = host == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(host);
+        server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        executor = newExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    /** Starts answering requests */
+    public void start()
+    {
+        server.start();
+    }
+
+    /** Stops answering requests, waiting up to a second for ones in progress */
+    public void stop()
+    {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    /** @return the port the server listens on */
+    public int getPort() { return server.getAddress().getPort(); }
+
+    /**
+     *  @return an executor that starts a virtual thread per task if this runtime has
+     *          virtual threads, or else a cached pool of platform threads
+     */
+    private static ExecutorService newExecutor()
+    {
+        try
+        {
+            return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch(ReflectiveOperationException e)
+        {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     *  Answers one request: runs the query its path names and writes the rows.
+     *
+     *  @param exchange     the request and its response
+     */
+    private void handle(HttpExchange exchange) throws IOException
+    {
+        try
+        {
+            if(!exchange.getRequestMethod().equals("GET"))
+            {
+                sendError(exchange, 405, "only GET is supported");
+                return;
+            }
+            Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+            String path = exchange.getRequestURI().getPath();
+            int limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : defaultLimit;
+            OutputFormat format = OutputFormat.parse(params.getOrDefault("format", "json"));
+            if(limit < 0)
+                throw new IllegalArgumentException("limit must not be negative");
+
+            CityDataset data = datasets.get();
+            CityQueries queries = data.getQueries();
+            if(path.equals("/metrics"))
+            {
+                byte[] text = Metrics.prometheus(queries.getCache()).getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, text.length);
+                try(OutputStream body = exchange.getResponseBody())
+                {
+                    body.write(text);
+                }
+                return;
+            }
+
+            int[] rows;
+            if(path.equals("/least"))
+                rows = queries.top(SortOrder.POPULATION_ASCENDING, limit);
+            else if(path.equals("/most"))
+                rows = queries.top(SortOrder.POPULATION_DESCENDING, limit);
+            else if(path.equals("/name-ascending"))
+                rows = queries.top(SortOrder.NAME_ASCENDING, limit);
+            else if(path.equals("/name-descending"))
+                rows = queries.top(SortOrder.NAME_DESCENDING, limit);
+            else if(path.equals("/state"))
+                rows = queries.mostPopulousInState(required(params, "name"), limit);
+            else if(path.equals("/rollup"))
+            {
+                GroupStats[] groups = queries.rollup(GroupBy.parse(params.getOrDefault("by", "state")));
+                int top = Integer.parseInt(params.getOrDefault("top", "10"));
+                exchange.getResponseHeaders().set("Content-Type", contentType(format));
+                exchange.sendResponseHeaders(200, 0);
+                try(OutputStream body = exchange.getResponseBody())
+                {
+                    new ResultWriter(body, format).writeRollup(groups, top, null);
+                }
+                return;
+            }
+            else if(path.equals("/city"))
+                rows = queries.matchingName(required(params, "name"),
+                                            params.containsKey("limit") ? limit : Integer.MAX_VALUE);
+            else if(path.equals("/find"))
+            {
+                params.remove("format");
+                rows = queries.select(CityQuery.parse(params).limit(limit));
+            }
+            else
+            {
+                sendError(exchange, 404, "no query at "+path);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", contentType(format));
+            exchange.sendResponseHeaders(200, 0);
+            try(OutputStream body = exchange.getResponseBody())
+            {
+                new ResultWriter(body, format).writeResult(data.getTable(), rows, null);
+            }
+        }
+        catch(IllegalArgumentException e)
+        {
+            sendError(exchange, 400, e.getMessage());
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+
+    /**
+     *  Sends a plain text error response.
+     *
+     *  @param exchange     the request and its response
+     *  @param status       the HTTP status code
+     *  @param message      what went wrong
+     */
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException
+    {
+        byte[] body = ("ERROR: "+message+"\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try(OutputStream out = exchange.getResponseBody())
+        {
+            out.write(body);
+        }
+    }
+
+    /** @return the Content-Type header for results in a format */
+    private static String contentType(OutputFormat format)
+    {
+        switch(format)
+        {
+            case JSON: return "application/x-ndjson; charset=utf-8";
+            case CSV: return "text/csv; charset=utf-8";
+            case TSV: return "text/tab-separated-values; charset=utf-8";
+            default: return "text/plain; charset=utf-8";
+        }
+    }
+
+    /**
+     *  @param params   the request parameters
+     *  @param name     the parameter the query needs
+     *  @return         the parameter's value
+     *  @throws IllegalArgumentException if the parameter is missing or empty
+     */
+    private static String required(Map<String, String> params, String name)
+    {
+        String value = params.get(name);
+        if(value == null || value.trim().isEmpty())
+            throw new IllegalArgumentException("missing parameter "+name);
+        return value.trim();
+    }
+
+    /**
+     *  Splits a URL query string into its decoded parameters.
+     *
+     *  @param query    the raw query string, or null for none
+     *  @return         parameter name -> value; later values replace earlier ones
+     */
+    private static Map<String, String> parseQuery(String query)
+    {
+        Map<String, String> params = new HashMap<String, String>();
+        if(query == null)
+            return params;
+        for(String pair : query.split("&"))
+        {
+            if(pair.isEmpty())
+                continue;
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals+1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                        URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+}
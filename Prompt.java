@@ -22,6 +22,16 @@ public class Prompt
                     new InputStreamReader(System.in);
     private static BufferedReader buffReader =
                     new BufferedReader(streamReader);
+    private static boolean ended;   // true once the input has run out
+
+    /**
+     *   @return true once a read has found the end of the input, after which
+     *           every prompt returns at once instead of asking again
+     */
+    public static boolean isEnded()
+    {
+        return ended;
+    }
 
     /**
      *   Prompts user for string of characters and returns the string.
@@ -35,6 +45,8 @@ public class Prompt
         try
         {
             input = buffReader.readLine();
+            if(input == null)
+                ended = true;
         }
         catch(IOException e)
         {
@@ -67,14 +79,14 @@ public class Prompt
     /**
      *  Prompts the user for an integer and returns the integer.
      *  @param ask  The prompt line
-     *  @return     The integer input
+     *  @return     The integer input, or 0 if the input has ended
      */
     public static int getInt (String ask)
     {
         int val = 0;
         boolean found = false;
 
-        while(!found)
+        while(!found && !ended)
         {
             String str = getString(ask);
             try
@@ -85,7 +97,8 @@ public class Prompt
             catch(NumberFormatException e)
             {
                 found = false;
-                System.out.println("Invalid input. Try again");
+                if(!ended)
+                    System.out.println("Invalid input. Try again");
             }
         }
         return val;
@@ -97,7 +110,7 @@ public class Prompt
      *      @param ask  The prompt line
      *      @param min  The minimum integer accepted
      *      @param max  The maximum integer accepted
-     *      @return The integer input
+     *      @return The integer input, or min if the input has ended
      */
     public static int getInt (String ask, int min, int max)
     {
@@ -105,7 +118,9 @@ public class Prompt
         do
         {
                 val = getInt(ask + " (" + min +", "+max+ ")");
-        } while(val < min || val > max);
+        } while(!ended && (val < min || val > max));
+        if(ended)
+            val = min;
         return val;
     }
 
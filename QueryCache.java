@@ -0,0 +1,144 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ *	QueryCache - A bounded cache of query results, evicting the least recently used.
+ *
+ *	Results are keyed by the normalized shape of the query: the operation, the
+ *	case-folded state, city or prefix, the order and the limit, so "TEXAS" and "texas"
+ *	share one entry. A composed CityQuery is keyed by its text as it is, since it has
+ *	already folded its names and a regex pattern must keep its case. The cache holds at most a number of entries and a number of row
+ *	ids in total, whichever fills first.
+ *
+ *	A cache outlives the datasets it serves. Each dataset's queries call
+ *	newGeneration() to drop what earlier datasets cached, and pass their generation
+ *	to get and put, so a query still running against a replaced dataset can never
+ *	read from or add to the current dataset's results.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class QueryCache
+{
+    public static final int DEFAULT_ENTRIES = 256;         // results kept by default
+    public static final int DEFAULT_ROWS = 1 << 20;        // row ids kept by default
+
+    private final int maxEntries;   // most results kept
+    private final long maxRows;     // most row ids kept, over all results
+    private final LinkedHashMap<String, int[]> results;    // key -> rows, least recent first
+    private long rows;              // row ids held now
+    private int generation;         // generation of the dataset whose results are held
+    private long hits;
+    private long misses;
+
+    /** Creates a cache with the default bounds */
+    public QueryCache()
+    {
+        this(DEFAULT_ENTRIES, DEFAULT_ROWS);
+    }
+
+    /**
+     *  @param maxEntries   most results to keep; 0 turns caching off
+     *  @param maxRows      most row ids to keep, over all results
+     */
+    public QueryCache(int maxEntries, long maxRows)
+    {
+        this.maxEntries = maxEntries;
+        this.maxRows = maxRows;
+        results = new LinkedHashMap<String, int[]>(16, 0.75f, true);
+    }
+
+    /**
+     *  Builds the normalized key for a query.
+     *
+     *  @param op       the query operation, like "state" or "city"
+     *  @param argument the state, city or prefix, or null for none
+     *  @param order    the order of the result
+     *  @param limit    the most rows the query returns
+     *  @return         the key
+     */
+    public static String key(String op, String argument, SortOrder order, int limit)
+    {
+        StringBuilder key = new StringBuilder(op).append('\0');
+        if(argument != null)
+            key.append(CityLookup.fold(argument));
+        return key.append('\0').append(order.name()).append('\0').append(limit).toString();
+    }
+
+    /**
+     *  Builds the key for a composed query from its text, without folding it again:
+     *  the query holds its state, designation, name and prefix folded already, and
+     *  its regex pattern is kept verbatim, so \d and \D get different keys.
+     *
+     *  @param op       the query operation, like "select"
+     *  @param query    the query
+     *  @return         the key
+     */
+    public static String key(String op, CityQuery query)
+    {
+        return new StringBuilder(op).append('\0').append(query.toString()).append('\0')
+            .append(query.getOrder().name()).append('\0').append(query.getLimit()).toString();
+    }
+
+    /**
+     *  Drops every cached result and starts a new generation for a newly loaded
+     *  dataset. The hit and miss counts are kept.
+     *
+     *  @return         the new generation
+     */
+    public synchronized int newGeneration()
+    {
+        results.clear();
+        rows = 0;
+        return ++generation;
+    }
+
+    /**
+     *  @param generation   the generation of the dataset asking
+     *  @param key          a key from key()
+     *  @return             a copy of the cached rows, or null if the query is not cached
+     */
+    public synchronized int[] get(int generation, String key)
+    {
+        int[] cached = generation == this.generation ? results.get(key) : null;
+        if(cached == null)
+        {
+            misses++;
+            return null;
+        }
+        hits++;
+        return cached.clone();
+    }
+
+    /**
+     *  Caches the result of a query, then evicts the least recently used results until
+     *  the cache is within its bounds again. A result larger than the whole cache is
+     *  not kept, nor is one from an older generation.
+     *
+     *  @param generation   the generation of the dataset the result is from
+     *  @param key          a key from key()
+     *  @param result       the rows of the result; a copy is kept
+     */
+    public synchronized void put(int generation, String key, int[] result)
+    {
+        if(generation != this.generation || maxEntries <= 0 || result.length > maxRows)
+            return;
+        int[] old = results.put(key, result.clone());
+        if(old != null)
+            rows -= old.length;
+        rows += result.length;
+
+        Iterator<Map.Entry<String, int[]>> eldest = results.entrySet().iterator();
+        while(results.size() > maxEntries || rows > maxRows)
+        {
+            rows -= eldest.next().getValue().length;
+            eldest.remove();
+        }
+    }
+
+    /**	Accessor methods */
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized int size() { return results.size(); }
+}
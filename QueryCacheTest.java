@@ -0,0 +1,53 @@
+/**
+ *	QueryCacheTest - Checks that queries sharing one QueryCache get their own results
+ *	when they differ only in ways the cache key must not fold away.
+ *
+ *	Run with: java QueryCacheTest
+ *	Prints "ok" and exits 0 if every check passes, and otherwise exits 1 naming the
+ *	check that failed.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class QueryCacheTest
+{
+    public static void main(String[] args)
+    {
+        CityTable table = new CityTable();
+        table.add("Texas", "Dallas", "city", 1300000);
+        table.add("Texas", "Route 66", "town", 500);
+        table.add("Ohio", "Akron", "city", 190000);
+        CityDataset dataset = new CityDataset(table, new SortIndexes(table, false), new QueryCache());
+        CityQueries queries = dataset.getQueries();
+
+        check("\\d", names(queries, queries.select(new CityQuery().nameMatching(".*\\d.*"))), "Route 66");
+        check("\\D", names(queries, queries.select(new CityQuery().nameMatching(".*\\D.*"))),
+              "Dallas, Akron, Route 66");
+        check("\\d again", names(queries, queries.select(new CityQuery().nameMatching(".*\\d.*"))), "Route 66");
+        check("state case", names(queries, queries.select(new CityQuery().inStates("OHIO"))), "Akron");
+        System.out.println("ok");
+    }
+
+    /** @return the city names of rows, in order, joined by ", " */
+    private static String names(CityQueries queries, int[] rows)
+    {
+        StringBuilder text = new StringBuilder();
+        for(int row : rows)
+        {
+            if(text.length() > 0)
+                text.append(", ");
+            text.append(queries.getTable().getCityName(row));
+        }
+        return text.toString();
+    }
+
+    /** Exits with an error if a query's result is not what it should be */
+    private static void check(String what, String actual, String expected)
+    {
+        if(!actual.equals(expected))
+        {
+            System.err.println("FAILED "+what+": expected ["+expected+"] but got ["+actual+"]");
+            System.exit(1);
+        }
+    }
+}
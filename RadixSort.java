@@ -0,0 +1,129 @@
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ *	RadixSort - LSD radix sort of CityTable rows into population or name order.
+ *
+ *	The population order is exactly the City.compareTo order (population, then state
+ *	name, then city name), because the passes are stable and run from the least
+ *	significant key to the most: first by city name code, then by state rank, then by
+ *	population. The name orders are one stable pass over the name codes.
+ *	Each key is an int sorted in four 8-bit counting passes; a pass is skipped when
+ *	every row has the same digit, so the small state and name ranks usually only
+ *	need one or two. Every pass also clears and sums one counter per bucket, and 256
+ *	of them stay in the L1 cache; 16-bit digits halve the passes but make that
+ *	overhead 65536 counters a pass, which was slower at every size measured, from
+ *	4096 rows (16 times the input) to a million. All scratch space is primitive
+ *	arrays.
+ *
+ *	The passes are O(n) per key, but the tie-breaks need the table's name codes, and
+ *	building those without a name order to read them from is a whole comparison
+ *	sort (see CityTable.nameCodes). So the sort is only linear once the codes are
+ *	built, which is why AdaptiveSort waits for CityTable.hasNameCodes.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class RadixSort
+{
+    private static final int DIGIT_BITS = 8;
+    private static final int BUCKETS = 1 << DIGIT_BITS;
+
+    /**
+     *  Sorts rows into ascending population order, with the same tie-breaking as
+     *  City.compareTo. Builds the table's name codes first if they are not built.
+     *
+     *  @param table    the table the rows belong to
+     *  @param rows     the row ids to sort
+     */
+    public static void sortByPopulation(CityTable table, int[] rows)
+    {
+        int[] nameCode = table.nameCodes();
+        int[] stateRank = table.stateRanks();
+
+        int[] buffer = new int[rows.length];
+        int[] keys = new int[rows.length];
+        int[] keyBuffer = new int[rows.length];
+        int[] count = new int[BUCKETS + 1];
+
+        sortByKey(rows, buffer, keys, keyBuffer, count, row -> nameCode[row]);
+        sortByKey(rows, buffer, keys, keyBuffer, count, row -> stateRank[table.getStateId(row)]);
+        sortByKey(rows, buffer, keys, keyBuffer, count, table::getPopulation);
+    }
+
+    /**
+     *  Sorts rows into name order, keeping rows with equal names in their input order.
+     *  Builds the table's name codes first if they are not built.
+     *
+     *  @param table    the table the rows belong to
+     *  @param rows     the row ids to sort
+     *  @param descending true for NAME_DESCENDING order
+     */
+    public static void sortByName(CityTable table, int[] rows, boolean descending)
+    {
+        int[] nameCode = table.nameCodes();
+        int[] count = new int[BUCKETS + 1];
+        sortByKey(rows, new int[rows.length], new int[rows.length], new int[rows.length], count,
+                    descending ? row -> ~nameCode[row] : row -> nameCode[row]);
+    }
+
+    /**
+     *  Sorts rows into an order. Descending population order is the ascending order
+     *  reversed, as SortIndexes builds it.
+     *
+     *  @param table    the table the rows belong to
+     *  @param rows     the row ids to sort
+     *  @param order    the order to sort them into
+     */
+    public static void sort(CityTable table, int[] rows, SortOrder order)
+    {
+        if(!order.isByPopulation())
+        {
+            sortByName(table, rows, order == SortOrder.NAME_DESCENDING);
+            return;
+        }
+        sortByPopulation(table, rows);
+        if(order == SortOrder.POPULATION_DESCENDING)
+            CitySorts.reverse(rows);
+    }
+
+    /**
+     *  Stable sort of rows by one signed int key, in four 8-bit counting passes. The
+     *  keys are read once and then moved along with their rows.
+     *
+     *  @param rows     the row ids to sort
+     *  @param buffer   scratch array, as long as rows
+     *  @param keys     scratch array, as long as rows
+     *  @param keyBuffer scratch array, as long as rows
+     *  @param count    scratch array of BUCKETS+1 counters
+     *  @param keyOf    the key of a row
+     */
+    private static void sortByKey(int[] rows, int[] buffer, int[] keys, int[] keyBuffer, int[] count,
+                                    IntUnaryOperator keyOf)
+    {
+        for(int i=0; i<rows.length; i++)
+            keys[i] = keyOf.applyAsInt(rows[i]) ^ Integer.MIN_VALUE;   // signed -> unsigned order
+
+        for(int shift = 0; shift < 32; shift += DIGIT_BITS)
+        {
+            Arrays.fill(count, 0);
+            for(int i=0; i<rows.length; i++)
+                count[((keys[i] >>> shift) & (BUCKETS-1)) + 1]++;
+
+            if(rows.length == 0 || count[((keys[0] >>> shift) & (BUCKETS-1)) + 1] == rows.length)
+                continue;   // every row has the same digit
+
+            for(int b=0; b<BUCKETS; b++)
+                count[b+1] += count[b];
+
+            for(int i=0; i<rows.length; i++)
+            {
+                int position = count[(keys[i] >>> shift) & (BUCKETS-1)]++;
+                buffer[position] = rows[i];
+                keyBuffer[position] = keys[i];
+            }
+            System.arraycopy(buffer, 0, rows, 0, rows.length);
+            System.arraycopy(keyBuffer, 0, keys, 0, keys.length);
+        }
+    }
+}
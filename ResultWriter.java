@@ -0,0 +1,474 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *	ResultWriter - Writes query results in an OutputFormat.
+ *
+ *	A whole result set is built up in one reusable character buffer and written out
+ *	with a single flush, instead of one println per row. Columns are padded and the
+ *	population is grouped with commas by hand, so no String.format or per-row
+ *	Strings are needed; ASCII city names are copied straight out of the CityTable.
+ *	Laying out and writing each result set are timed in Metrics.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class ResultWriter
+{
+    private final int NAME_WIDTH = 22;        // width of the state and city columns
+    private final int TYPE_WIDTH = 12;        // width of the designation column
+    private final int POPULATION_WIDTH = 12;  // width of the population column
+    private final int COUNT_WIDTH = 8;        // width of a rollup's city count column
+    private final int TOTAL_WIDTH = 15;       // width of a rollup's total population column
+    private final int SHARE_WIDTH = 8;        // width of a rollup's top-N share column
+    private final int BAR_WIDTH = 40;         // width of a histogram's longest bar
+    private final int TRANSFER_CHARS = 8192;  // chars handed to the Writer at a time
+
+    private final Writer out;
+    private final OutputFormat format;
+    private final StringBuilder buffer;   // the result set being built, reused
+    private final char[] transfer;        // copies the buffer into the Writer
+    private final char[] digits;          // scratch space for formatting a number
+
+    /**
+     *  @param stream   where to write the results
+     *  @param format   the layout to write them in
+     */
+    public ResultWriter(OutputStream stream, OutputFormat format)
+    {
+        out = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+        this.format = format;
+        buffer = new StringBuilder(1 << 14);
+        transfer = new char[TRANSFER_CHARS];
+        digits = new char[32];
+    }
+
+    /** @return the layout results are written in */
+    public OutputFormat getFormat() { return format; }
+
+    /**
+     *  Writes a result set: an optional label, the header, and one line per row.
+     *  In TABLE format the label is a "> label" line, in TSV and CSV it is a "# label"
+     *  line, and in JSON it is a "query" field on every row.
+     *
+     *  @param table    the table the rows belong to
+     *  @param rows     the row ids of the result, in order
+     *  @param label    the query that produced the result, or null for none
+     */
+    public void writeResult(CityTable table, int[] rows, String label)
+    {
+        long start = Metrics.start();
+        buffer.setLength(0);
+        switch(format)
+        {
+            case TABLE:
+                if(label != null)
+                    buffer.append("> ").append(label).append('\n');
+                buffer.append("    ");
+                pad("State", NAME_WIDTH).append(' ');
+                pad("City", NAME_WIDTH).append(' ');
+                pad("Type", TYPE_WIDTH).append(' ');
+                padLeft("Population", POPULATION_WIDTH).append('\n');
+                for(int i=0; i<rows.length; i++)
+                    appendTableRow(table, i+1, rows[i]);
+                break;
+            case TSV:
+            case CSV:
+                char separator = format == OutputFormat.TSV ? '\t' : ',';
+                if(label != null)
+                    buffer.append("# ").append(label).append('\n');
+                buffer.append("state").append(separator).append("city").append(separator)
+                    .append("type").append(separator).append("population\n");
+                for(int row : rows)
+                    appendDelimitedRow(table, row, separator);
+                break;
+            case JSON:
+                for(int row : rows)
+                    appendJsonRow(table, row, label);
+                break;
+        }
+        Metrics.stop(Metrics.Phase.FORMAT, start);
+        flush();
+    }
+
+    /**
+     *  Writes a rollup from CityAggregator: one line per group with its city count,
+     *  total, average, median, minimum and maximum population, and the share of the
+     *  total held by its top N cities. The groups must have kept their populations.
+     *
+     *  @param groups   the groups, in the order to write them
+     *  @param topN     the number of cities the share column is for
+     *  @param label    the query that produced the rollup, or null for none
+     */
+    public void writeRollup(GroupStats[] groups, int topN, String label)
+    {
+        long start = Metrics.start();
+        buffer.setLength(0);
+        String share = "Top "+topN;
+        switch(format)
+        {
+            case TABLE:
+                if(label != null)
+                    buffer.append("> ").append(label).append('\n');
+                pad("Group", NAME_WIDTH).append(' ');
+                padLeft("Cities", COUNT_WIDTH).append(' ');
+                padLeft("Total", TOTAL_WIDTH).append(' ');
+                padLeft("Average", POPULATION_WIDTH).append(' ');
+                padLeft("Median", POPULATION_WIDTH).append(' ');
+                padLeft("Min", POPULATION_WIDTH).append(' ');
+                padLeft("Max", POPULATION_WIDTH).append(' ');
+                padLeft(share, SHARE_WIDTH).append('\n');
+                for(GroupStats group : groups)
+                {
+                    pad(group.getName(), NAME_WIDTH).append(' ');
+                    appendGrouped(group.getCount(), COUNT_WIDTH);
+                    buffer.append(' ');
+                    appendGrouped(group.getSum(), TOTAL_WIDTH);
+                    buffer.append(' ');
+                    appendGrouped(Math.round(group.getAverage()), POPULATION_WIDTH);
+                    buffer.append(' ');
+                    appendGrouped(group.getMedian(), POPULATION_WIDTH);
+                    buffer.append(' ');
+                    appendGrouped(group.getMin(), POPULATION_WIDTH);
+                    buffer.append(' ');
+                    appendGrouped(group.getMax(), POPULATION_WIDTH);
+                    buffer.append(' ');
+                    appendFixed(group.topShare(topN) * 100, 1, SHARE_WIDTH - 1);
+                    buffer.append("%\n");
+                }
+                break;
+            case TSV:
+            case CSV:
+                char separator = format == OutputFormat.TSV ? '\t' : ',';
+                if(label != null)
+                    buffer.append("# ").append(label).append('\n');
+                buffer.append("group").append(separator).append("cities").append(separator).append("total")
+                    .append(separator).append("average").append(separator).append("median").append(separator)
+                    .append("min").append(separator).append("max").append(separator).append("top_")
+                    .append(topN).append("_share\n");
+                for(GroupStats group : groups)
+                {
+                    appendField(group.getName(), separator);
+                    buffer.append(separator).append(group.getCount()).append(separator).append(group.getSum())
+                        .append(separator);
+                    appendFixed(group.getAverage(), 1, 0);
+                    buffer.append(separator).append(group.getMedian()).append(separator).append(group.getMin())
+                        .append(separator).append(group.getMax()).append(separator);
+                    appendFixed(group.topShare(topN), 4, 0);
+                    buffer.append('\n');
+                }
+                break;
+            case JSON:
+                for(GroupStats group : groups)
+                {
+                    buffer.append('{');
+                    if(label != null)
+                    {
+                        buffer.append("\"query\":");
+                        appendJsonString(label);
+                        buffer.append(',');
+                    }
+                    buffer.append("\"group\":");
+                    appendJsonString(group.getName());
+                    buffer.append(",\"cities\":").append(group.getCount()).append(",\"total\":")
+                        .append(group.getSum()).append(",\"average\":");
+                    appendFixed(group.getAverage(), 1, 0);
+                    buffer.append(",\"median\":").append(group.getMedian()).append(",\"min\":")
+                        .append(group.getMin()).append(",\"max\":").append(group.getMax())
+                        .append(",\"top\":").append(topN).append(",\"top_share\":");
+                    appendFixed(group.topShare(topN), 4, 0);
+                    buffer.append("}\n");
+                }
+                break;
+        }
+        Metrics.stop(Metrics.Phase.FORMAT, start);
+        flush();
+    }
+
+    /**
+     *  Writes a population histogram from PopulationRangeIndex: one line per bucket
+     *  with its bounds, city count and share of the cities, and in TABLE format a bar
+     *  scaled to the fullest bucket.
+     *
+     *  @param buckets  the buckets, in the order to write them
+     *  @param label    the query that produced the histogram, or null for none
+     */
+    public void writeHistogram(PopulationRangeIndex.Bucket[] buckets, String label)
+    {
+        long start = Metrics.start();
+        buffer.setLength(0);
+        long total = 0;
+        int fullest = 0;
+        for(PopulationRangeIndex.Bucket bucket : buckets)
+        {
+            total += bucket.getCount();
+            fullest = Math.max(fullest, bucket.getCount());
+        }
+        switch(format)
+        {
+            case TABLE:
+                if(label != null)
+                    buffer.append("> ").append(label).append('\n');
+                padLeft("From", POPULATION_WIDTH).append(' ');
+                padLeft("To", POPULATION_WIDTH).append(' ');
+                padLeft("Cities", COUNT_WIDTH).append(' ');
+                padLeft("Share", SHARE_WIDTH).append('\n');
+                for(PopulationRangeIndex.Bucket bucket : buckets)
+                {
+                    appendGrouped(bucket.getLow(), POPULATION_WIDTH);
+                    buffer.append(' ');
+                    appendGrouped(bucket.getHigh(), POPULATION_WIDTH);
+                    buffer.append(' ');
+                    appendGrouped(bucket.getCount(), COUNT_WIDTH);
+                    buffer.append(' ');
+                    appendFixed(total == 0 ? 0 : 100.0 * bucket.getCount() / total, 1, SHARE_WIDTH - 1);
+                    buffer.append("% ");
+                    int bar = fullest == 0 ? 0 : (int)((long)bucket.getCount() * BAR_WIDTH / fullest);
+                    for(int i=0; i<bar; i++)
+                        buffer.append('#');
+                    buffer.append('\n');
+                }
+                break;
+            case TSV:
+            case CSV:
+                char separator = format == OutputFormat.TSV ? '\t' : ',';
+                if(label != null)
+                    buffer.append("# ").append(label).append('\n');
+                buffer.append("from").append(separator).append("to").append(separator).append("cities")
+                    .append(separator).append("share\n");
+                for(PopulationRangeIndex.Bucket bucket : buckets)
+                {
+                    buffer.append(bucket.getLow()).append(separator).append(bucket.getHigh()).append(separator)
+                        .append(bucket.getCount()).append(separator);
+                    appendFixed(total == 0 ? 0 : (double)bucket.getCount() / total, 4, 0);
+                    buffer.append('\n');
+                }
+                break;
+            case JSON:
+                for(PopulationRangeIndex.Bucket bucket : buckets)
+                {
+                    buffer.append('{');
+                    if(label != null)
+                    {
+                        buffer.append("\"query\":");
+                        appendJsonString(label);
+                        buffer.append(',');
+                    }
+                    buffer.append("\"from\":").append(bucket.getLow()).append(",\"to\":").append(bucket.getHigh())
+                        .append(",\"cities\":").append(bucket.getCount()).append(",\"share\":");
+                    appendFixed(total == 0 ? 0 : (double)bucket.getCount() / total, 4, 0);
+                    buffer.append("}\n");
+                }
+                break;
+        }
+        Metrics.stop(Metrics.Phase.FORMAT, start);
+        flush();
+    }
+
+    /**
+     *  Writes plain text through the same buffer, for lines around a result set.
+     *
+     *  @param text     the text to write
+     */
+    public void write(String text)
+    {
+        buffer.setLength(0);
+        buffer.append(text);
+        flush();
+    }
+
+    /** Appends " 1: State   City   Type   1,234" padded to the table's columns */
+    private void appendTableRow(CityTable table, int number, int row)
+    {
+        if(number < 10)
+            buffer.append(' ');
+        buffer.append(number).append(": ");
+        pad(table.getStateName(row), NAME_WIDTH).append(' ');
+
+        int start = buffer.length();
+        table.appendCityName(row, buffer);
+        spaces(NAME_WIDTH - (buffer.length() - start)).append(' ');
+
+        pad(table.getCityType(row), TYPE_WIDTH).append(' ');
+        appendGrouped(table.getPopulation(row), POPULATION_WIDTH);
+        buffer.append('\n');
+    }
+
+    /** Appends one TSV or CSV line */
+    private void appendDelimitedRow(CityTable table, int row, char separator)
+    {
+        appendField(table.getStateName(row), separator);
+        buffer.append(separator);
+
+        int start = buffer.length();
+        table.appendCityName(row, buffer);
+        if(separator == ',' && needsQuotes(start))
+        {
+            String name = buffer.substring(start);
+            buffer.setLength(start);
+            appendField(name, separator);
+        }
+        buffer.append(separator);
+
+        appendField(table.getCityType(row), separator);
+        buffer.append(separator).append(table.getPopulation(row)).append('\n');
+    }
+
+    /** Appends one JSON object line */
+    private void appendJsonRow(CityTable table, int row, String label)
+    {
+        buffer.append('{');
+        if(label != null)
+        {
+            buffer.append("\"query\":");
+            appendJsonString(label);
+            buffer.append(',');
+        }
+        buffer.append("\"state\":");
+        appendJsonString(table.getStateName(row));
+        buffer.append(",\"city\":");
+        appendJsonString(table.getCityName(row));
+        buffer.append(",\"type\":");
+        appendJsonString(table.getCityType(row));
+        buffer.append(",\"population\":").append(table.getPopulation(row)).append("}\n");
+    }
+
+    /** Appends a TSV or CSV field, quoting it for CSV if it needs it */
+    private void appendField(String value, char separator)
+    {
+        if(separator == ',' && (value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0))
+        {
+            buffer.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+        else
+            buffer.append(value);
+    }
+
+    /** @return true if the buffer from start on holds a character CSV must quote */
+    private boolean needsQuotes(int start)
+    {
+        for(int i=start; i<buffer.length(); i++)
+        {
+            char c = buffer.charAt(i);
+            if(c == ',' || c == '"' || c == '\n' || c == '\r')
+                return true;
+        }
+        return false;
+    }
+
+    /** Appends a quoted JSON string, escaping what JSON requires */
+    private void appendJsonString(String value)
+    {
+        buffer.append('"');
+        for(int i=0; i<value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if(c == '"' || c == '\\')
+                buffer.append('\\').append(c);
+            else if(c < 0x20)
+                buffer.append(String.format("\\u%04x", (int)c));
+            else
+                buffer.append(c);
+        }
+        buffer.append('"');
+    }
+
+    /** Appends value, then spaces up to width (like %-Ns) */
+    private StringBuilder pad(String value, int width)
+    {
+        buffer.append(value);
+        return spaces(width - value.length());
+    }
+
+    /** Appends spaces up to width, then value (like %Ns) */
+    private StringBuilder padLeft(String value, int width)
+    {
+        spaces(width - value.length());
+        return buffer.append(value);
+    }
+
+    /** Appends count spaces; nothing if count is not positive */
+    private StringBuilder spaces(int count)
+    {
+        for(int i=0; i<count; i++)
+            buffer.append(' ');
+        return buffer;
+    }
+
+    /**
+     *  Appends a number with commas between each group of three digits, right-aligned
+     *  in width characters (like %,Nd).
+     *
+     *  @param value    the number
+     *  @param width    the column width
+     */
+    private void appendGrouped(long value, int width)
+    {
+        long remaining = Math.abs(value);
+        int length = 0;
+        do
+        {
+            if(length % 4 == 3)
+                digits[digits.length - ++length] = ',';
+            digits[digits.length - ++length] = (char)('0' + remaining % 10);
+            remaining /= 10;
+        } while(remaining > 0);
+        if(value < 0)
+            digits[digits.length - ++length] = '-';
+
+        spaces(width - length);
+        buffer.append(digits, digits.length - length, length);
+    }
+
+    /**
+     *  Appends a number rounded to a number of decimal places, right-aligned in width
+     *  characters (like %N.Df).
+     *
+     *  @param value    the number
+     *  @param decimals digits after the decimal point
+     *  @param width    the column width; 0 for no padding
+     */
+    private void appendFixed(double value, int decimals, int width)
+    {
+        long remaining = Math.round(Math.abs(value) * Math.pow(10, decimals));
+        boolean negative = value < 0 && remaining > 0;
+        int length = 0;
+        do
+        {
+            if(length == decimals && decimals > 0)
+                digits[digits.length - ++length] = '.';
+            digits[digits.length - ++length] = (char)('0' + remaining % 10);
+            remaining /= 10;
+        } while(remaining > 0 || length <= decimals);
+        if(negative)
+            digits[digits.length - ++length] = '-';
+
+        spaces(width - length);
+        buffer.append(digits, digits.length - length, length);
+    }
+
+    /** Writes the buffer to the output and flushes it */
+    private void flush()
+    {
+        long start = Metrics.start();
+        try
+        {
+            for(int i=0; i<buffer.length(); i+=transfer.length)
+            {
+                int end = Math.min(buffer.length(), i + transfer.length);
+                buffer.getChars(i, end, transfer, 0);
+                out.write(transfer, 0, end - i);
+            }
+            out.flush();
+        }
+        catch(IOException e)
+        {
+            System.err.println("ERROR: Cannot write results: "+e.getMessage());
+        }
+        Metrics.stop(Metrics.Phase.WRITE, start);
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ *	RowComparator - Compares two rows of a CityTable by their row ids. Sorts and
+ *	indexes use this instead of Comparator<City> so that no objects are created per
+ *	comparison.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public interface RowComparator
+{
+    /**
+     *  Compares two rows.
+     *
+     *  @param a        the first row id
+     *  @param b        the second row id
+     *  @return         negative, zero or positive as row a is before, equal to or after row b
+     */
+    int compare(int a, int b);
+
+    /**
+     *  @return         a comparator that orders rows the opposite way
+     */
+    default RowComparator reversed()
+    {
+        RowComparator forward = this;
+        return (a, b) -> forward.compare(b, a);
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ *	SortAlgorithm - The sorts a SortStrategy can be made from, for choosing the
+ *	algorithm by name with --sort or per query in batch mode.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public enum SortAlgorithm
+{
+    ADAPTIVE,    // AdaptiveSort picks one of the sorts below for each input
+    INSERTION,   // insertion sort
+    SELECTION,   // selection sort
+    MERGE,       // top-down merge sort on one thread
+    NATURAL,     // NaturalMergeSort, merging the runs already in the input
+    PARALLEL,    // ParallelMergeSort on the fork-join pool
+    RADIX;       // RadixSort, on population or name codes
+
+    /**
+     *  @return         a new strategy that sorts with this algorithm; strategies that
+     *                  keep scratch buffers reuse them across their own calls
+     */
+    public SortStrategy create()
+    {
+        switch(this)
+        {
+            case ADAPTIVE:
+                return new AdaptiveSort();
+            case INSERTION:
+                return (table, rows, order) -> CitySorts.insertionSort(rows, 0, rows.length-1,
+                                                                        order.comparator(table));
+            case SELECTION:
+                return (table, rows, order) -> CitySorts.selectionSort(rows, order.comparator(table));
+            case MERGE:
+                return (table, rows, order) -> CitySorts.mergeSort(rows, order.comparator(table));
+            case NATURAL:
+                NaturalMergeSort natural = new NaturalMergeSort();
+                return (table, rows, order) -> natural.sort(rows, order.comparator(table));
+            case PARALLEL:
+                ParallelMergeSort parallel = new ParallelMergeSort();
+                return (table, rows, order) -> parallel.sort(rows, order.comparator(table));
+            default:
+                return RadixSort::sort;
+        }
+    }
+
+    /**
+     *  Finds an algorithm by name, ignoring case.
+     *
+     *  @param name     adaptive, insertion, selection, merge, natural, parallel or radix
+     *  @return         the algorithm
+     *  @throws IllegalArgumentException if there is no algorithm with that name
+     */
+    public static SortAlgorithm parse(String name)
+    {
+        return valueOf(name.trim().toUpperCase());
+    }
+}
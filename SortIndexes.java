@@ -0,0 +1,254 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ *	SortIndexes - Persistent sort-order indexes over a CityTable. Each index is an
+ *	int[] permutation of row ids listing the whole table in one SortOrder, so a
+ *	"first k rows" query is just k reads of the index.
+ *
+ *	Indexes are either all built up front, or built lazily the first time each one
+ *	is asked for. Once built an index never changes, so one query can not change
+ *	the order the next query sees. Callers must not modify the arrays returned by
+ *	rows().
+ *
+ *	The ascending indexes are sorted with a SortStrategy made from a SortAlgorithm,
+ *	AdaptiveSort by default, which keeps its scratch buffers between builds. A data
+ *	file that is already in population or name order is then indexed in one pass.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class SortIndexes
+{
+    private final CityTable table;   // the table being indexed
+    private final int[][] indexes;   // one permutation per SortOrder, null until built
+    private final SortAlgorithm algorithm;  // the algorithm the sorter was made from
+    private final SortStrategy sorter;      // sorts the ascending indexes
+
+    /**
+     *  @param table    the table to index
+     *  @param lazy     true to build each index on first use, false to build all now
+     */
+    public SortIndexes(CityTable table, boolean lazy)
+    {
+        this(table, lazy, SortAlgorithm.ADAPTIVE);
+    }
+
+    /**
+     *  @param table        the table to index
+     *  @param lazy         true to build each index on first use, false to build all now
+     *  @param algorithm    the sort to build the indexes with
+     */
+    public SortIndexes(CityTable table, boolean lazy, SortAlgorithm algorithm)
+    {
+        this.table = table;
+        this.algorithm = algorithm;
+        indexes = new int[SortOrder.values().length][];
+        sorter = algorithm.create();
+
+        if(!lazy)
+        {
+            rows(SortOrder.NAME_ASCENDING);   // first, so the population sort has name codes
+            for(SortOrder order : SortOrder.values())
+                rows(order);
+        }
+    }
+
+    /**
+     *  Returns the index for an order, building it if needed. The descending orders
+     *  are built by reversing the ascending ones rather than sorting again.
+     *
+     *  @param order    the sort order
+     *  @return         all row ids in that order; must not be modified
+     */
+    public synchronized int[] rows(SortOrder order)
+    {
+        int[] rows = indexes[order.ordinal()];
+        if(rows == null)
+        {
+            long start = Metrics.start();
+            if(order == SortOrder.POPULATION_ASCENDING || order == SortOrder.NAME_ASCENDING)
+            {
+                rows = CitySorts.identity(table.size());
+                long sortStart = Metrics.start();
+                sorter.sort(table, rows, order);
+                Metrics.stop(Metrics.Phase.SORT, sortStart);
+                if(order == SortOrder.NAME_ASCENDING)
+                    table.setNameOrder(rows);
+            }
+            else
+            {
+                rows = rows(order.reverse()).clone();
+                CitySorts.reverse(rows);
+            }
+            indexes[order.ordinal()] = rows;
+            Metrics.stop(Metrics.Phase.INDEX_BUILD, start);
+        }
+        return rows;
+    }
+
+    /**
+     *  Builds the indexes of a changed copy of this table by patching the built indexes
+     *  rather than sorting again. Removed rows are dropped and the rest renumbered in
+     *  one pass; each moved or added row is then placed by binary search, and the kept
+     *  runs between them are copied across in bulk. So the sorting work is
+     *  O(changes * log n) comparisons, plus one linear copy of each index. The name
+     *  codes are patched along with the name index, with CityTable.patchNameCodes.
+     *  Indexes that were not built yet stay unbuilt.
+     *
+     *  @param updated  the changed table: this table's rows, then any added rows, after
+     *                  removed rows were taken out with CityTable.removeRows
+     *  @param remap    the new id of each row id before the removal, or -1 if removed;
+     *                  ids from this table's size on are the added rows
+     *  @param moved    true for each row id of this table whose population changed
+     *  @return         the indexes of the updated table
+     */
+    public synchronized SortIndexes patched(CityTable updated, int[] remap, boolean[] moved)
+    {
+        SortIndexes patched = new SortIndexes(updated, true, algorithm);
+        int oldSize = table.size();
+        for(SortOrder order : new SortOrder[] { SortOrder.NAME_ASCENDING, SortOrder.POPULATION_ASCENDING })
+        {
+            int[] rows = indexes[order.ordinal()];
+            if(rows == null)
+                continue;
+            long start = Metrics.start();
+            boolean byPopulation = order == SortOrder.POPULATION_ASCENDING;
+
+            int[] kept = new int[rows.length];
+            int count = 0;
+            for(int row : rows)
+            {
+                if(remap[row] >= 0 && !(byPopulation && moved[row]))
+                    kept[count++] = remap[row];
+            }
+
+            int[] placed = new int[remap.length];
+            int numPlaced = 0;
+            for(int row=0; row<remap.length; row++)
+            {
+                if(remap[row] >= 0 && (row >= oldSize || (byPopulation && moved[row])))
+                    placed[numPlaced++] = remap[row];
+            }
+
+            RowComparator cmp = order.comparator(updated);
+            placed = Arrays.copyOf(placed, numPlaced);
+            CitySorts.mergeSort(placed, cmp);
+            patched.indexes[order.ordinal()] = insertSorted(kept, count, placed, cmp);
+            if(!byPopulation)
+                updated.patchNameCodes(table, remap, patched.indexes[order.ordinal()]);
+            Metrics.stop(Metrics.Phase.INDEX_BUILD, start);
+
+            SortOrder reverse = order.reverse();
+            if(indexes[reverse.ordinal()] != null)
+                patched.rows(reverse);
+        }
+        return patched;
+    }
+
+    /**
+     *  Inserts sorted rows into a sorted list of rows, finding each one's place by
+     *  binary search from the last one's place and copying the runs between them.
+     *
+     *  @param rows     the sorted list
+     *  @param count    the number of rows in the list
+     *  @param insert   the sorted rows to insert
+     *  @param cmp      the order of both lists
+     *  @return         a new array holding both lists, in order
+     */
+    private static int[] insertSorted(int[] rows, int count, int[] insert, RowComparator cmp)
+    {
+        int[] merged = new int[count + insert.length];
+        int from = 0;
+        int filled = 0;
+        for(int row : insert)
+        {
+            int low = from;
+            int high = count;
+            while(low < high)
+            {
+                int middle = (low+high) >>> 1;
+                if(cmp.compare(rows[middle], row) < 0)
+                    low = middle+1;
+                else
+                    high = middle;
+            }
+            System.arraycopy(rows, from, merged, filled, low - from);
+            filled += low - from;
+            merged[filled++] = row;
+            from = low;
+        }
+        System.arraycopy(rows, from, merged, filled, count - from);
+        return merged;
+    }
+
+    /**
+     *  @param order    the sort order
+     *  @return         true if the index for order has been built
+     */
+    public synchronized boolean isBuilt(SortOrder order)
+    {
+        return indexes[order.ordinal()] != null;
+    }
+
+    /**
+     *  @param order    the sort order
+     *  @param position position in that order, starting at 0
+     *  @return         the row id at that position
+     */
+    public int row(SortOrder order, int position)
+    {
+        return rows(order)[position];
+    }
+
+    /**
+     *  Writes the built indexes for CitySnapshot: for each SortOrder, a flag saying
+     *  whether it is built, followed by its row ids if it is.
+     *
+     *  @param out      the stream to write to
+     */
+    public synchronized void writeTo(DataOutputStream out) throws IOException
+    {
+        for(SortOrder order : SortOrder.values())
+        {
+            int[] rows = indexes[order.ordinal()];
+            out.writeBoolean(rows != null);
+            if(rows != null)
+                CitySnapshot.writeInts(out, rows, rows.length);
+        }
+    }
+
+    /**
+     *  Reads indexes written by writeTo, advancing the buffer past them. Indexes that
+     *  were not saved are built now, or on first use if lazy.
+     *
+     *  @param in       the buffer to read from
+     *  @param table    the table the indexes belong to
+     *  @param lazy     true to build missing indexes on first use, false to build them now
+     *  @param algorithm the sort to build missing indexes with
+     *  @return         the indexes
+     */
+    public static SortIndexes readFrom(ByteBuffer in, CityTable table, boolean lazy, SortAlgorithm algorithm)
+    {
+        SortIndexes loaded = new SortIndexes(table, true, algorithm);
+        for(SortOrder order : SortOrder.values())
+        {
+            if(in.get() != 0)
+                loaded.indexes[order.ordinal()] = CitySnapshot.readInts(in, table.size());
+        }
+        if(loaded.indexes[SortOrder.NAME_ASCENDING.ordinal()] != null)
+            table.setNameOrder(loaded.indexes[SortOrder.NAME_ASCENDING.ordinal()]);
+
+        if(!lazy)
+        {
+            for(SortOrder order : SortOrder.values())
+                loaded.rows(order);
+        }
+        return loaded;
+    }
+
+    /** @return the table being indexed */
+    public CityTable getTable() { return table; }
+}
@@ -0,0 +1,77 @@
+/**
+ *	SortOrder - The orders the city database can be listed in.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public enum SortOrder
+{
+    POPULATION_ASCENDING,
+    POPULATION_DESCENDING,
+    NAME_ASCENDING,
+    NAME_DESCENDING;
+
+    /**
+     *  Builds the comparator for this order over a table. Population order breaks ties
+     *  the same way City.compareTo does. Name order compares the table's name codes
+     *  if they are built, and the name bytes if not; it never builds them.
+     *
+     *  Rows that are still equal are ordered by row id, lowest first in the ascending
+     *  orders and last in the descending ones, which is where a stable sort and its
+     *  reversal put them. Every row then has one place, so a top-k selection over a
+     *  lazy index lists ties the same way as the built index does.
+     *
+     *  @param table    the table whose rows are compared
+     *  @return         the comparator for this order
+     */
+    public RowComparator comparator(CityTable table)
+    {
+        switch(this)
+        {
+            case POPULATION_ASCENDING:
+                return (a, b) -> {
+                    int cmp = table.compareRows(a, b);
+                    return cmp != 0 ? cmp : Integer.compare(a, b);
+                };
+            case POPULATION_DESCENDING:
+                return (a, b) -> {
+                    int cmp = table.compareRows(b, a);
+                    return cmp != 0 ? cmp : Integer.compare(b, a);
+                };
+            case NAME_ASCENDING:
+                return (a, b) -> {
+                    int cmp = table.compareNames(a, b);
+                    return cmp != 0 ? cmp : Integer.compare(a, b);
+                };
+            default:
+                return (a, b) -> {
+                    int cmp = table.compareNames(b, a);
+                    return cmp != 0 ? cmp : Integer.compare(b, a);
+                };
+        }
+    }
+
+    /** @return true for POPULATION_ASCENDING and POPULATION_DESCENDING */
+    public boolean isByPopulation()
+    {
+        return this == POPULATION_ASCENDING || this == POPULATION_DESCENDING;
+    }
+
+    /**
+     *  @return         the order that lists rows the opposite way
+     */
+    public SortOrder reverse()
+    {
+        switch(this)
+        {
+            case POPULATION_ASCENDING:
+                return POPULATION_DESCENDING;
+            case POPULATION_DESCENDING:
+                return POPULATION_ASCENDING;
+            case NAME_ASCENDING:
+                return NAME_DESCENDING;
+            default:
+                return NAME_ASCENDING;
+        }
+    }
+}
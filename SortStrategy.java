@@ -0,0 +1,19 @@
+/**
+ *	SortStrategy - An algorithm that sorts an int[] permutation of CityTable row ids
+ *	into a SortOrder. SortAlgorithm names the strategies there are, and AdaptiveSort
+ *	picks one of them for each input.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public interface SortStrategy
+{
+    /**
+     *  Sorts the rows.
+     *
+     *  @param table    the table the rows belong to
+     *  @param rows     the row ids to sort
+     *  @param order    the order to sort them into
+     */
+    void sort(CityTable table, int[] rows, SortOrder order);
+}
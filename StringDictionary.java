@@ -0,0 +1,149 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *	StringDictionary - Interns the distinct values of a string column, so each row
+ *	holds a small int id and every distinct value is stored once.
+ *
+ *	Ids are handed out in the order values are first seen. Two derived views are
+ *	built on demand and kept until a new value is added:
+ *		ranks       the position of each id in String.compareTo order, so comparing
+ *		            two values is comparing two ints
+ *		folded ids  an id for each distinct case-folded value (CityLookup.fold), so a
+ *		            case-insensitive match is an int comparison
+ *
+ *	Like CityTable, a dictionary is filled by one thread and then only read, so only
+ *	building the derived views is synchronized.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class StringDictionary
+{
+    private final List<String> values;           // distinct values, indexed by id
+    private final Map<String, Integer> ids;      // value -> id
+    private volatile int[] rank;                 // rank of each id in value order, null until needed
+    private volatile int[] foldedId;             // folded id of each id, null until needed
+    private Map<String, Integer> foldedIds;      // folded value -> folded id, null until needed
+
+    public StringDictionary()
+    {
+        values = new ArrayList<String>();
+        ids = new HashMap<String, Integer>();
+    }
+
+    /**
+     *  Looks up the id of a value, adding it if it is new.
+     *
+     *  @param value    the value to encode
+     *  @return         the id of value
+     */
+    public int encode(String value)
+    {
+        Integer id = ids.get(value);
+        if(id == null)
+        {
+            id = values.size();
+            values.add(value);
+            ids.put(value, id);
+            rank = null;
+            foldedId = null;
+            foldedIds = null;
+        }
+        return id;
+    }
+
+    /**
+     *  @param value    a value
+     *  @return         the id of value, or -1 if it is not in the dictionary
+     */
+    public int find(String value)
+    {
+        return ids.getOrDefault(value, -1);
+    }
+
+    /** @return the value with an id */
+    public String get(int id) { return values.get(id); }
+
+    /** @return the number of distinct values */
+    public int size() { return values.size(); }
+
+    /**
+     *  Ranks the values: a smaller rank means an earlier value in String.compareTo
+     *  order. Values are distinct, so no two ids share a rank.
+     *
+     *  @return         the rank of each id; must not be modified
+     */
+    public int[] ranks()
+    {
+        int[] ranks = rank;
+        return ranks != null ? ranks : buildRanks();
+    }
+
+    /** Builds the ranks the first time they are asked for */
+    private synchronized int[] buildRanks()
+    {
+        if(rank == null)
+        {
+            Integer[] byValue = new Integer[values.size()];
+            for(int id=0; id<byValue.length; id++)
+                byValue[id] = id;
+            Arrays.sort(byValue, (a, b) -> values.get(a).compareTo(values.get(b)));
+
+            int[] ranks = new int[byValue.length];
+            for(int r=0; r<byValue.length; r++)
+                ranks[byValue[r]] = r;
+            rank = ranks;
+        }
+        return rank;
+    }
+
+    /**
+     *  Numbers the distinct case-folded values. Values that differ only in case or
+     *  surrounding spaces share a folded id.
+     *
+     *  @return         the folded id of each id; must not be modified
+     */
+    public int[] foldedIds()
+    {
+        int[] folded = foldedId;
+        return folded != null ? folded : buildFoldedIds();
+    }
+
+    /** Builds the folded ids the first time they are asked for */
+    private synchronized int[] buildFoldedIds()
+    {
+        if(foldedId == null)
+        {
+            Map<String, Integer> keys = new HashMap<String, Integer>();
+            int[] folded = new int[values.size()];
+            for(int id=0; id<folded.length; id++)
+            {
+                String key = CityLookup.fold(values.get(id));
+                Integer keyId = keys.get(key);
+                if(keyId == null)
+                {
+                    keyId = keys.size();
+                    keys.put(key, keyId);
+                }
+                folded[id] = keyId;
+            }
+            foldedIds = keys;
+            foldedId = folded;
+        }
+        return foldedId;
+    }
+
+    /**
+     *  @param key      a case-folded value, as made by CityLookup.fold
+     *  @return         the folded id of key, or -1 if no value folds to it
+     */
+    public synchronized int findFolded(String key)
+    {
+        buildFoldedIds();
+        return foldedIds.getOrDefault(key, -1);
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ *	TopKSelector - Selects the k first rows of a CityTable in some order without sorting
+ *	all of them. Keeps a bounded max-heap of the k best rows seen so far, so a scan
+ *	of n rows costs O(n log k) and never changes the data or the order of the input.
+ *
+ *	@author	Sudhanva Deshpande
+ *	@since	October 18, 2026
+ */
+public class TopKSelector
+{
+    /**
+     *  Selects the k first rows of the whole table.
+     *
+     *  @param size     number of rows in the table; rows 0..size-1 are candidates
+     *  @param cmp      the row order
+     *  @param k        the number of rows wanted
+     *  @return         up to k row ids, sorted by cmp
+     */
+    public static int[] selectAll(int size, RowComparator cmp, int k)
+    {
+        long start = Metrics.start();
+        int[] heap = new int[Math.min(k, size)];
+        int count = 0;
+
+        for(int row=0; row<size; row++)
+            count = offer(heap, count, row, cmp);
+
+        int[] selected = drain(heap, count, cmp);
+        Metrics.stop(Metrics.Phase.SELECT, start);
+        return selected;
+    }
+
+    /**
+     *  Selects the k first rows out of a list of candidate rows.
+     *
+     *  @param rows     candidate row ids; not modified
+     *  @param length   number of candidates in rows to use
+     *  @param cmp      the row order
+     *  @param k        the number of rows wanted
+     *  @return         up to k row ids, sorted by cmp
+     */
+    public static int[] select(int[] rows, int length, RowComparator cmp, int k)
+    {
+        long start = Metrics.start();
+        int[] heap = new int[Math.min(k, length)];
+        int count = 0;
+
+        for(int i=0; i<length; i++)
+            count = offer(heap, count, rows[i], cmp);
+
+        int[] selected = drain(heap, count, cmp);
+        Metrics.stop(Metrics.Phase.SELECT, start);
+        return selected;
+    }
+
+    /**
+     *  Offers a row to the heap. The heap's root is the worst of the rows it holds, so
+     *  once the heap is full a new row only goes in if it beats the root.
+     *
+     *  @param heap     the heap of row ids
+     *  @param count    number of rows in the heap
+     *  @param row      the row to offer
+     *  @param cmp      the row order
+     *  @return         the new number of rows in the heap
+     */
+    private static int offer(int[] heap, int count, int row, RowComparator cmp)
+    {
+        if(count < heap.length)
+        {
+            int child = count;
+            heap[child] = row;
+            while(child > 0)
+            {
+                int parent = (child-1)/2;
+                if(cmp.compare(heap[child], heap[parent]) <= 0)
+                    break;
+                CitySorts.swap(heap, child, parent);
+                child = parent;
+            }
+            return count+1;
+        }
+
+        if(count > 0 && cmp.compare(row, heap[0]) < 0)
+        {
+            heap[0] = row;
+            siftDown(heap, 0, count, cmp);
+        }
+        return count;
+    }
+
+    /**
+     *  Moves the row at position parent down until it is no worse than both its children.
+     *
+     *  @param heap     the heap of row ids
+     *  @param parent   position of the row to move
+     *  @param count    number of rows in the heap
+     *  @param cmp      the row order
+     */
+    private static void siftDown(int[] heap, int parent, int count, RowComparator cmp)
+    {
+        int child = 2*parent+1;
+        while(child < count)
+        {
+            if(child+1 < count && cmp.compare(heap[child+1], heap[child]) > 0)
+                child++;
+            if(cmp.compare(heap[child], heap[parent]) <= 0)
+                return;
+            CitySorts.swap(heap, child, parent);
+            parent = child;
+            child = 2*parent+1;
+        }
+    }
+
+    /**
+     *  Heap sorts the rows in the heap so the best row comes first.
+     *
+     *  @param heap     the heap of row ids
+     *  @param count    number of rows in the heap
+     *  @param cmp      the row order
+     *  @return         the rows in the heap, sorted by cmp
+     */
+    private static int[] drain(int[] heap, int count, RowComparator cmp)
+    {
+        for(int end = count-1; end > 0; end--)
+        {
+            CitySorts.swap(heap, 0, end);
+            siftDown(heap, 0, end, cmp);
+        }
+        return heap.length == count ? heap : java.util.Arrays.copyOf(heap, count);
+    }
+}